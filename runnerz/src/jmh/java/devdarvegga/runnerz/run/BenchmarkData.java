@@ -0,0 +1,36 @@
+package devdarvegga.runnerz.run;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic run data shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 6, 0);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Returns the run with the given ID: one run per hour from START, alternating locations.
+     */
+    static Run run(int id) {
+        LocalDateTime startedOn = START.plusHours(id);
+        return new Run(id, "Run " + id, startedOn, startedOn.plusMinutes(20 + id % 60), 1 + id % 10,
+                id % 2 == 0 ? Location.INDOOR : Location.OUTDOOR);
+    }
+
+    /**
+     * Returns count runs with consecutive IDs starting at firstId.
+     */
+    static List<Run> runs(int firstId, int count) {
+        List<Run> runs = new ArrayList<>(count);
+        for (int id = firstId; id < firstId + count; id++) {
+            runs.add(run(id));
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,155 @@
+package devdarvegga.runnerz.run;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InMemoryRunRepository (concurrent map with skip-list indexes) compared with a synchronized list that scans
+ * every run under one lock, as the in-memory store used to, over tableSize runs.
+ *
+ * The single-threaded benchmarks measure lookups and week-long location ranges; the readWrite group runs three
+ * readers against one writer updating random runs, so it shows lock contention only with at least four cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InMemoryRunRepositoryBenchmark {
+
+    @Param({"concurrent", "synchronizedList"})
+    String store;
+
+    @Param({"10000", "100000"})
+    int tableSize;
+
+    Runs runs;
+
+    /**
+     * The operations being compared.
+     */
+    interface Runs {
+
+        Optional<Run> findById(int id);
+
+        List<Run> findByLocation(Location location, LocalDateTime from, LocalDateTime to);
+
+        void update(Run run);
+    }
+
+    /**
+     * Runs in a synchronized list, every query a scan under the list's lock.
+     */
+    static final class SynchronizedListRuns implements Runs {
+
+        private final List<Run> runs = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public Optional<Run> findById(int id) {
+            synchronized (runs) {
+                return runs.stream().filter(run -> run.id() == id).findFirst();
+            }
+        }
+
+        @Override
+        public List<Run> findByLocation(Location location, LocalDateTime from, LocalDateTime to) {
+            synchronized (runs) {
+                return runs.stream()
+                        .filter(run -> run.location() == location && !run.startedOn().isBefore(from) && run.startedOn().isBefore(to))
+                        .sorted(Comparator.comparing(Run::startedOn).thenComparing(Run::id))
+                        .toList();
+            }
+        }
+
+        @Override
+        public void update(Run run) {
+            synchronized (runs) {
+                for (int i = 0; i < runs.size(); i++) {
+                    if (runs.get(i).id().equals(run.id())) {
+                        runs.set(i, run);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (store.equals("concurrent")) {
+            var repository = new InMemoryRunRepository();
+            runs = new Runs() {
+                @Override
+                public Optional<Run> findById(int id) {
+                    return repository.findById(id);
+                }
+
+                @Override
+                public List<Run> findByLocation(Location location, LocalDateTime from, LocalDateTime to) {
+                    return repository.findByLocation(location, from, to);
+                }
+
+                @Override
+                public void update(Run run) {
+                    repository.update(run, run.id());
+                }
+            };
+            BenchmarkData.runs(1, tableSize).forEach(repository::create);
+        } else {
+            var list = new SynchronizedListRuns();
+            list.runs.addAll(BenchmarkData.runs(1, tableSize));
+            runs = list;
+        }
+    }
+
+    @Benchmark
+    public Optional<Run> findById() {
+        return runs.findById(randomId());
+    }
+
+    @Benchmark
+    public List<Run> findByLocationInWeek() {
+        LocalDateTime from = BenchmarkData.START.plusHours(randomId());
+        return runs.findByLocation(Location.OUTDOOR, from, from.plusWeeks(1));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public Optional<Run> readWhileWriting() {
+        return runs.findById(randomId());
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void writeWhileReading() {
+        runs.update(BenchmarkData.run(randomId()));
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, tableSize + 1);
+    }
+}
@@ -0,0 +1,111 @@
+package devdarvegga.runnerz.run;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * JdbcRunRepository against an embedded H2 database (created from schema.sql) holding tableSize runs.
+ *
+ * Runs written by create and saveAll get IDs above tableSize and are deleted after each iteration,
+ * so every iteration measures the same table size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JdbcRunRepositoryBenchmark {
+
+    private static final int SAVE_ALL_SIZE = 500;
+
+    @Param({"1000", "10000", "100000"})
+    int tableSize;
+
+    EmbeddedDatabase database;
+    JdbcTemplate jdbcTemplate;
+    JdbcRunRepository repository;
+    int nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("runnerz-benchmark-" + UUID.randomUUID())
+                .addScript("schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        var transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+        repository = new JdbcRunRepository(JdbcClient.create(database), jdbcTemplate, transactionTemplate,
+                new RunPartitions(JdbcClient.create(database), transactionTemplate), 500);
+        repository.saveAll(BenchmarkData.runs(1, tableSize));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetIds() {
+        nextId = tableSize + 1;
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteWrittenRuns() {
+        repository.deleteAll(IntStream.range(tableSize + 1, nextId).boxed().toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public List<Run> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public Optional<Run> findById() {
+        return repository.findById(ThreadLocalRandom.current().nextInt(1, tableSize + 1));
+    }
+
+    @Benchmark
+    public List<Run> findByLocation() {
+        return repository.findByLocation(Location.OUTDOOR.name());
+    }
+
+    @Benchmark
+    public void create() {
+        repository.create(BenchmarkData.run(nextId++));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BatchResult saveAll() {
+        BatchResult result = repository.saveAll(BenchmarkData.runs(nextId, SAVE_ALL_SIZE));
+        nextId += SAVE_ALL_SIZE;
+        return result;
+    }
+}
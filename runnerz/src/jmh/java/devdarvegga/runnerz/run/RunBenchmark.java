@@ -0,0 +1,108 @@
+package devdarvegga.runnerz.run;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Run record on its own: construction (with the compact constructor check), bean validation,
+ * the derived pace, and Jackson (de)serialization of a Run and of a Runs document with runsSize runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RunBenchmark {
+
+    @Param({"10", "1000"})
+    int runsSize;
+
+    ObjectMapper objectMapper;
+    ValidatorFactory validatorFactory;
+    Validator validator;
+    Run run;
+    byte[] runJson;
+    Runs runs;
+    byte[] runsJson;
+    LocalDateTime startedOn;
+    LocalDateTime completedOn;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Same configuration as the application's ObjectMapper (Java time support, unknown properties ignored)
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        run = BenchmarkData.run(42);
+        runJson = objectMapper.writeValueAsBytes(run);
+        runs = new Runs(BenchmarkData.runs(1, runsSize));
+        runsJson = objectMapper.writeValueAsBytes(runs);
+        startedOn = run.startedOn();
+        completedOn = run.completedOn();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Run construct() {
+        return new Run(42, "Run 42", startedOn, completedOn, 5, Location.OUTDOOR);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Run>> validate() {
+        return validator.validate(run);
+    }
+
+    @Benchmark
+    public Integer avgPace() {
+        return run.getAvgPace();
+    }
+
+    @Benchmark
+    public byte[] serializeRun() throws IOException {
+        return objectMapper.writeValueAsBytes(run);
+    }
+
+    @Benchmark
+    public Run deserializeRun() throws IOException {
+        return objectMapper.readValue(runJson, Run.class);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] serializeRuns() throws IOException {
+        return objectMapper.writeValueAsBytes(runs);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Runs deserializeRuns() throws IOException {
+        return objectMapper.readValue(runsJson, Runs.class);
+    }
+}
@@ -0,0 +1,99 @@
+package devdarvegga.runnerz.run;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load test against a running instance, for comparing the servlet and the reactive
+ * variant of the runs API under many concurrent connections (JMH measures single calls, not servers).
+ *
+ * Each of connections virtual threads sends GET /api/runs/{id} for a random seeded ID, waits for the response
+ * and sends the next, for the warm-up and then the measured duration. Reports throughput, latency percentiles
+ * and failures (non-200 responses and I/O errors) of the measured part.
+ *
+ * Start the application first, e.g. java -jar target/runnerz-*.jar [--spring.profiles.active=reactive], then:
+ * mvn -Pbenchmark test-compile exec:exec@load-test -Dload.args="http://localhost:8080 10000 30s 10s"
+ */
+public class RunLoadTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        URI baseUri = URI.create(args.length > 0 ? args[0] : "http://localhost:8080");
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        Duration duration = Duration.parse("PT" + (args.length > 2 ? args[2] : "30s"));
+        Duration warmup = Duration.parse("PT" + (args.length > 3 ? args[3] : "10s"));
+        int seededRuns = 10;
+
+        var registry = new SimpleMeterRegistry();
+        Timer latency = Timer.builder("load.latency")
+                .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                .distributionStatisticExpiry(duration.plus(warmup).multipliedBy(2))
+                .distributionStatisticBufferLength(1)
+                .register(registry);
+        var failures = new ConcurrentHashMap<String, LongAdder>();
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        var done = new CountDownLatch(connections);
+        try (var client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+             var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                clients.submit(() -> {
+                    try {
+                        while (System.nanoTime() < end) {
+                            var request = HttpRequest.newBuilder(baseUri.resolve("/api/runs/" + ThreadLocalRandom.current().nextInt(1, seededRuns + 1)))
+                                    .timeout(Duration.ofSeconds(30))
+                                    .build();
+                            long sent = System.nanoTime();
+                            String failure = null;
+                            try {
+                                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                                if (response.statusCode() != 200) {
+                                    failure = "HTTP " + response.statusCode();
+                                }
+                            } catch (Exception e) {
+                                failure = e.getClass().getSimpleName();
+                            }
+                            if (sent >= measureFrom) {
+                                if (failure == null) {
+                                    latency.record(System.nanoTime() - sent, TimeUnit.NANOSECONDS);
+                                } else {
+                                    failures.computeIfAbsent(failure, key -> new LongAdder()).increment();
+                                }
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        }
+
+        var snapshot = latency.takeSnapshot();
+        System.out.printf("%s, %d connections, %s measured after %s warm-up%n", baseUri, connections, duration, warmup);
+        System.out.printf("throughput: %.0f requests/s (%d ok)%n", snapshot.count() / (double) duration.toSeconds(), snapshot.count());
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            System.out.printf("p%s: %.1f ms%n", percentile.percentile() * 100, percentile.value(TimeUnit.MILLISECONDS));
+        }
+        System.out.printf("max: %.1f ms%n", snapshot.max(TimeUnit.MILLISECONDS));
+        System.out.printf("failures: %s%n", failures.isEmpty() ? "none" : failures);
+    }
+}
@@ -0,0 +1,116 @@
+package devdarvegga.runnerz.run;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Location and date-range reads over tableSize runs in embedded H2, with the (location, started_on) and
+ * started_on indexes from schema.sql and with them dropped, i.e. the full scans the queries did before.
+ * The plan H2 chose for each query is printed during setup.
+ *
+ * Each call reads a random week: with one run per hour that is 168 runs, 84 at the location.
+ * Loading a million rows takes a while, so a quick run can lower it with -p tableSize=100000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RunLocationQueryBenchmark {
+
+    private static final int LOAD_CHUNK = 100_000;
+
+    @Param({"1000000"})
+    int tableSize;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    EmbeddedDatabase database;
+    JdbcRunRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("runnerz-location-benchmark-" + UUID.randomUUID())
+                .addScript("schema.sql")
+                .build();
+        var jdbcTemplate = new JdbcTemplate(database);
+        var transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+        var partitions = new RunPartitions(JdbcClient.create(database), transactionTemplate);
+        repository = new JdbcRunRepository(JdbcClient.create(database), jdbcTemplate, transactionTemplate, partitions, 1000);
+        for (int first = 1; first <= tableSize; first += LOAD_CHUNK) {
+            repository.saveAll(BenchmarkData.runs(first, Math.min(LOAD_CHUNK, tableSize - first + 1)));
+        }
+        if (!indexed) {
+            for (String table : jdbcTemplate.queryForList("SELECT table_name FROM run_month", String.class)) {
+                jdbcTemplate.execute("DROP INDEX " + table + "_location_started_on_idx");
+                jdbcTemplate.execute("DROP INDEX " + table + "_started_on_idx");
+            }
+        }
+        jdbcTemplate.execute("ANALYZE");
+
+        LocalDateTime from = BenchmarkData.START.plusHours(tableSize / 2);
+        String source = partitions.source(from, from.plusWeeks(1));
+        explain(jdbcTemplate, "SELECT id, title, started_on, completed_on, miles, location FROM " + source
+                + " WHERE location = ? AND started_on >= ? AND started_on < ? ORDER BY started_on, id",
+                Location.OUTDOOR.ordinal(), from, from.plusWeeks(1));
+        explain(jdbcTemplate, "SELECT id, title, started_on, completed_on, miles, location FROM " + source
+                + " WHERE started_on >= ? AND started_on < ? ORDER BY started_on, id",
+                from, from.plusWeeks(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public List<Run> findByLocationInWeek() {
+        LocalDateTime from = randomWeek();
+        return repository.findByLocation(Location.OUTDOOR, from, from.plusWeeks(1));
+    }
+
+    @Benchmark
+    public long streamWeek() {
+        LocalDateTime from = randomWeek();
+        long[] miles = new long[1];
+        repository.streamAll(from, from.plusWeeks(1), run -> miles[0] += run.miles());
+        return miles[0];
+    }
+
+    private LocalDateTime randomWeek() {
+        return BenchmarkData.START.plusHours(ThreadLocalRandom.current().nextInt(tableSize - 168));
+    }
+
+    private static void explain(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args);
+        System.out.println(plan);
+    }
+}
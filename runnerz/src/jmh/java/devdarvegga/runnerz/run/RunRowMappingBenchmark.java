@@ -0,0 +1,102 @@
+package devdarvegga.runnerz.run;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading every run from an embedded H2 database (created from schema.sql) holding tableSize runs,
+ * by the ways JdbcRunRepository has mapped rows: reflectively by column name with DataClassRowMapper
+ * (as it used to), by column index (findAll, streamAll), and into RunColumns batches (streamColumns).
+ * The streaming benchmarks total miles and pace, as an aggregate or export would.
+ *
+ * Run with -prof gc for gc.alloc.rate.norm (bytes allocated per read of the whole table), or with
+ * -jvmArgsAppend -XX:StartFlightRecording=filename=mapping.jfr and
+ * jfr print --events jdk.ObjectAllocationSample mapping.jfr to see which classes the allocations are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RunRowMappingBenchmark {
+
+    @Param({"10000", "100000"})
+    int tableSize;
+
+    EmbeddedDatabase database;
+    JdbcClient jdbcClient;
+    JdbcRunRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("runnerz-benchmark-" + UUID.randomUUID())
+                .addScript("schema.sql")
+                .build();
+        jdbcClient = JdbcClient.create(database);
+        var transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+        repository = new JdbcRunRepository(jdbcClient, new JdbcTemplate(database), transactionTemplate,
+                new RunPartitions(jdbcClient, transactionTemplate), 500);
+        repository.saveAll(BenchmarkData.runs(1, tableSize));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public List<Run> findAllByName() {
+        return jdbcClient.sql("SELECT id, title, started_on, completed_on, miles, location FROM run")
+                .query(new DataClassRowMapper<>(Run.class))
+                .list();
+    }
+
+    @Benchmark
+    public List<Run> findAllByIndex() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public double streamAll() {
+        double[] total = new double[1];
+        repository.streamAll(null, null, run -> total[0] += run.miles() + run.pace());
+        return total[0];
+    }
+
+    @Benchmark
+    public double streamColumns() {
+        double[] total = new double[1];
+        repository.streamColumns(null, null, batch -> {
+            for (int row = 0; row < batch.size(); row++) {
+                total[0] += batch.miles(row) + batch.pace(row);
+            }
+        });
+        return total[0];
+    }
+}
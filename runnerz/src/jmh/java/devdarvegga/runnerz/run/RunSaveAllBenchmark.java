@@ -0,0 +1,115 @@
+package devdarvegga.runnerz.run;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Writing runs with JdbcRunRepository.saveAll() (JDBC batches of runnerz.jdbc.batch-size, one transaction per chunk)
+ * compared with the loop it replaced, one create() and one transaction per run.
+ *
+ * Runs against embedded H2 by default. To measure PostgreSQL, pass a JDBC URL of a scratch database,
+ * e.g. for the one in compose.yml:
+ *   -Djmh.args="RunSaveAllBenchmark -p database=jdbc:postgresql://localhost:5432/runnerz?user=dan&password=password"
+ * schema-postgresql.sql is applied to it first, which drops and recreates the run tables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RunSaveAllBenchmark {
+
+    @Param({"h2"})
+    String database;
+
+    @Param({"1000", "10000"})
+    int runs;
+
+    DataSource dataSource;
+    JdbcTemplate jdbcTemplate;
+    JdbcRunRepository repository;
+    int nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (database.equals("h2")) {
+            dataSource = new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2)
+                    .setName("runnerz-save-benchmark-" + UUID.randomUUID())
+                    .addScript("schema.sql")
+                    .build();
+        } else {
+            dataSource = new DriverManagerDataSource(database);
+            new ResourceDatabasePopulator(new ClassPathResource("schema-postgresql.sql")).execute(dataSource);
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        var transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        repository = new JdbcRunRepository(JdbcClient.create(dataSource), jdbcTemplate, transactionTemplate,
+                new RunPartitions(JdbcClient.create(dataSource), transactionTemplate), 500);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetIds() {
+        nextId = 1;
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteWrittenRuns() {
+        repository.deleteAll(IntStream.range(1, nextId).boxed().toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (dataSource instanceof EmbeddedDatabase embedded) {
+            embedded.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int perRowCreate() {
+        List<Run> batch = nextRuns();
+        for (Run run : batch) {
+            repository.create(run);
+        }
+        return batch.size();
+    }
+
+    @Benchmark
+    public BatchResult saveAll() {
+        return repository.saveAll(nextRuns());
+    }
+
+    private List<Run> nextRuns() {
+        List<Run> batch = BenchmarkData.runs(nextId, runs);
+        nextId += runs;
+        return batch;
+    }
+}
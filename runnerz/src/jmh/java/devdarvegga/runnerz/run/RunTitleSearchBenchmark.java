@@ -0,0 +1,97 @@
+package devdarvegga.runnerz.run;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Title search through RunTitleIndex compared with the LIKE scan it replaces, over tableSize runs in embedded H2.
+ * Titles combine words of different frequency, e.g. "Foggy Harbour run 123".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RunTitleSearchBenchmark {
+
+    private static final String[] MOODS = {"Easy", "Tempo", "Foggy", "Sunny", "Rainy", "Hilly", "Recovery", "Long", "Late", "Early", "Windy"};
+    private static final String[] PLACES = {"Harbour", "Park", "Riverside", "Track", "Canal", "Forest", "Beach", "Bridge", "Ridge",
+            "Meadow", "Quarry", "Orchard", "Dunes", "Reservoir", "Lighthouse", "Abbey", "Marsh", "Viaduct", "Common", "Heath"};
+
+    @Param({"100000", "1000000"})
+    int tableSize;
+
+    EmbeddedDatabase database;
+    JdbcTemplate jdbcTemplate;
+    RunTitleIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("runnerz-search-benchmark-" + UUID.randomUUID())
+                .addScript("schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        var transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+        JdbcRunRepository repository = new JdbcRunRepository(JdbcClient.create(database), jdbcTemplate, transactionTemplate,
+                new RunPartitions(JdbcClient.create(database), transactionTemplate), 1000);
+        LocalDateTime start = BenchmarkData.START;
+        for (int first = 1; first <= tableSize; first += 10_000) {
+            List<Run> runs = new ArrayList<>(10_000);
+            for (int id = first; id < first + 10_000 && id <= tableSize; id++) {
+                String title = MOODS[id % MOODS.length] + " " + PLACES[id % PLACES.length] + " run " + id;
+                runs.add(new Run(id, title, start.plusMinutes(id), start.plusMinutes(id + 30), 4, Location.OUTDOOR));
+            }
+            repository.saveAll(runs);
+        }
+        index = new RunTitleIndex();
+        index.rebuild(repository);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public RunTitleIndex.Page indexSearch() {
+        return index.search("foggy harbour", 0, 20);
+    }
+
+    /**
+     * The table scan needed to answer the same question without the index: every title has to be
+     * inspected to count (and rank) the matches, even before fetching a page of them.
+     */
+    @Benchmark
+    public Integer likeScan() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM run WHERE LOWER(title) LIKE '%foggy%' OR LOWER(title) LIKE '%harbour%'",
+                Integer.class);
+    }
+}
@@ -0,0 +1,83 @@
+package devdarvegga.runnerz.run;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import devdarvegga.runnerz.config.WireFormatConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a GET /api/runs response (a list of RUNS runs) in each negotiated wire format,
+ * with the same ObjectMapper configuration as the API. Scores are per run.
+ * The encoded size per run is printed once per trial, as "bytes/run".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RunWireFormatBenchmark {
+
+    private static final int RUNS = 1000;
+
+    @Param({"json", "smile", "cbor"})
+    String format;
+
+    ObjectWriter writer;
+    ObjectMapper reader;
+    List<Run> runs;
+    byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "json" -> bootJsonBuilder().build();
+            case "smile" -> WireFormatConfig.smileObjectMapper(bootJsonBuilder());
+            case "cbor" -> WireFormatConfig.cborObjectMapper(bootJsonBuilder());
+            default -> throw new IllegalArgumentException(format);
+        };
+        runs = BenchmarkData.runs(1, RUNS);
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Run.class));
+        reader = objectMapper;
+        encoded = writer.writeValueAsBytes(runs);
+        System.out.printf("%n%s: %.1f bytes/run%n", format, (double) encoded.length / RUNS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RUNS)
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(runs);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RUNS)
+    public Run[] deserialize() throws IOException {
+        return reader.readValue(encoded, Run[].class);
+    }
+
+    /**
+     * Spring Boot's defaults on top of Spring's builder: ISO-8601 strings for dates and durations.
+     */
+    private static Jackson2ObjectMapperBuilder bootJsonBuilder() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS);
+    }
+}
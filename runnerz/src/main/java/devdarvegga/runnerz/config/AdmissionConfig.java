@@ -0,0 +1,49 @@
+package devdarvegga.runnerz.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Wires admission control for the runs API (runnerz.admission.enabled=true), see AdmissionControlFilter.
+ */
+@Configuration
+@ConditionalOnProperty(value = "runnerz.admission.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AdmissionConfig {
+
+    /**
+     * Filters every /api/runs request with the settings from runnerz.admission.*.
+     * Ordered right after Spring Boot's observation filter, so turned-away requests still show up
+     * in http.server.requests but nothing else is spent on them.
+     */
+    @Bean
+    FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            MeterRegistry meterRegistry,
+            @Value("${runnerz.admission.rate:50}") double rate,
+            @Value("${runnerz.admission.burst:100}") double burst,
+            @Value("${runnerz.admission.max-clients:100000}") long maxClients,
+            @Value("${runnerz.admission.initial-limit:20}") int initialLimit,
+            @Value("${runnerz.admission.min-limit:4}") int minLimit,
+            @Value("${runnerz.admission.max-limit:200}") int maxLimit,
+            @Value("${runnerz.admission.latency-target:500ms}") Duration latencyTarget,
+            @Value("${runnerz.admission.bulk.initial-limit:4}") int bulkInitialLimit,
+            @Value("${runnerz.admission.bulk.min-limit:1}") int bulkMinLimit,
+            @Value("${runnerz.admission.bulk.max-limit:16}") int bulkMaxLimit,
+            @Value("${runnerz.admission.bulk.latency-target:60s}") Duration bulkLatencyTarget) {
+        var concurrencyLimit = new AimdConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyTarget.toNanos(), System.nanoTime());
+        var bulkLimit = new AimdConcurrencyLimit(bulkInitialLimit, bulkMinLimit, bulkMaxLimit, bulkLatencyTarget.toNanos(), System.nanoTime());
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(rate, burst, maxClients, concurrencyLimit, bulkLimit, meterRegistry, System::nanoTime));
+        registration.addUrlPatterns("/api/runs/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
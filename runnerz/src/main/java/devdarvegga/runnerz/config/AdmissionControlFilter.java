@@ -0,0 +1,145 @@
+package devdarvegga.runnerz.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control in front of the runs API, so one client hammering it cannot starve everyone else
+ * and overload is turned away cheaply instead of queueing on the database.
+ *
+ * Each request first takes a token from its client's TokenBucket (keyed by remote address), refilled at rate
+ * tokens per second up to burst; a client whose bucket is empty gets 429 with Retry-After saying when its next
+ * token arrives. It then takes a slot from the shared AimdConcurrencyLimit; when none is free it gets 503 with
+ * Retry-After: 1. Either way it never reaches a controller or the repository.
+ *
+ * Bulk requests (see isBulk()) take their slot from a separate limit with its own latency target: they are
+ * expected to take seconds, and sampling them against the interactive target would shrink the limit
+ * until every other request was turned away. Only 503 and 504 responses count as overload;
+ * an exception escaping the chain is a failure of that request, not a sign of load.
+ *
+ * Buckets of idle clients expire once they would have refilled anyway; at most maxClients are kept,
+ * and a client whose bucket was evicted starts again with a full one.
+ * Streaming and long-poll responses hold a slot only until their handler returns, not for the life of the stream.
+ */
+class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final double rate;
+    private final double burst;
+    private final Cache<String, TokenBucket> buckets;
+    private final AimdConcurrencyLimit concurrencyLimit;
+    private final AimdConcurrencyLimit bulkLimit;
+    private final LongSupplier clock;
+    private final Counter rateLimited;
+    private final Counter concurrencyLimited;
+
+    AdmissionControlFilter(double rate, double burst, long maxClients, AimdConcurrencyLimit concurrencyLimit,
+                           AimdConcurrencyLimit bulkLimit, MeterRegistry registry, LongSupplier clock) {
+        Assert.isTrue(rate > 0, "runnerz.admission.rate must be positive");
+        Assert.isTrue(burst >= 1, "runnerz.admission.burst must be at least 1");
+        this.rate = rate;
+        this.burst = burst;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofNanos((long) Math.ceil(burst / rate * 1e9)))
+                .maximumSize(maxClients)
+                .build();
+        this.concurrencyLimit = concurrencyLimit;
+        this.bulkLimit = bulkLimit;
+        this.clock = clock;
+
+        registerGauges(registry, "interactive", concurrencyLimit);
+        registerGauges(registry, "bulk", bulkLimit);
+        Gauge.builder("runnerz.admission.clients", buckets, Cache::estimatedSize)
+                .description("Clients with a rate limit bucket")
+                .register(registry);
+        this.rateLimited = Counter.builder("runnerz.admission.rejected")
+                .description("API requests turned away by admission control")
+                .tag("reason", "rate_limit")
+                .register(registry);
+        this.concurrencyLimited = Counter.builder("runnerz.admission.rejected")
+                .description("API requests turned away by admission control")
+                .tag("reason", "concurrency_limit")
+                .register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = clock.getAsLong();
+        long wait = buckets.get(request.getRemoteAddr(), client -> new TokenBucket(burst, rate, now)).tryAcquire(now);
+        if (wait > 0) {
+            rateLimited.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, Math.max(1, (wait + 999_999_999) / 1_000_000_000));
+            return;
+        }
+        AimdConcurrencyLimit limit = isBulk(request) ? bulkLimit : concurrencyLimit;
+        if (!limit.tryAcquire()) {
+            concurrencyLimited.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1);
+            return;
+        }
+
+        boolean overloaded = false;
+        try {
+            chain.doFilter(request, response);
+            int status = response.getStatus();
+            overloaded = status == HttpStatus.SERVICE_UNAVAILABLE.value() || status == HttpStatus.GATEWAY_TIMEOUT.value();
+        } finally {
+            limit.release(now, clock.getAsLong(), overloaded);
+        }
+    }
+
+    /**
+     * Whether a request's work grows with the table or the request body rather than being bounded by a page:
+     * exports, the change feed, batch writes and deletes, unpaged (or NDJSON) listings and stats.
+     */
+    static boolean isBulk(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if (path.startsWith("/api/runs/export") || path.startsWith("/api/runs/changes") || path.startsWith("/api/runs/stats")) {
+            return true;
+        }
+        if (path.equals("/api/runs/batch")) {
+            return "POST".equals(method);
+        }
+        if (path.equals("/api/runs") || path.equals("/api/runs/")) {
+            if ("DELETE".equals(method)) {
+                return true;
+            }
+            String accept = request.getHeader(HttpHeaders.ACCEPT);
+            return "GET".equals(method) && (request.getParameter("after") == null && request.getParameter("limit") == null
+                    || accept != null && accept.contains("application/x-ndjson"));
+        }
+        return false;
+    }
+
+    private static void registerGauges(MeterRegistry registry, String pool, AimdConcurrencyLimit limit) {
+        Gauge.builder("runnerz.admission.limit", limit, AimdConcurrencyLimit::limit)
+                .description("Current adaptive limit on concurrent API requests")
+                .tag("pool", pool)
+                .register(registry);
+        Gauge.builder("runnerz.admission.in_flight", limit, AimdConcurrencyLimit::inFlight)
+                .description("API requests currently holding a concurrency slot")
+                .tag("pool", pool)
+                .register(registry);
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+    }
+}
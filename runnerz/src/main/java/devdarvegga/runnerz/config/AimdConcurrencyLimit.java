@@ -0,0 +1,80 @@
+package devdarvegga.runnerz.config;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limit on concurrent requests that adapts to how the application copes, additive increase / multiplicative decrease
+ * as in TCP congestion control.
+ *
+ * A request that completes within the latency target, while at least half the limit is in use, raises the limit
+ * by 1/limit, i.e. by about one per limit's worth of such requests. A request that is slower than the target,
+ * or that failed because something downstream was overloaded, cuts the limit by a tenth, at most once per round:
+ * requests admitted before the last cut are not counted again. The limit stays within [minLimit, maxLimit].
+ * Times are System.nanoTime() values passed in by the caller.
+ */
+final class AimdConcurrencyLimit {
+
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    // Guarded by this, as are updates of limit
+    private long lastDecreaseAt;
+
+    AimdConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyTargetNanos, long now) {
+        Assert.isTrue(0 < minLimit && minLimit <= initialLimit && initialLimit <= maxLimit,
+                "concurrency limits must satisfy 0 < min <= initial <= max");
+        Assert.isTrue(latencyTargetNanos > 0, "latency target must be positive");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTargetNanos;
+        this.limit = initialLimit;
+        this.lastDecreaseAt = now;
+    }
+
+    /**
+     * Takes a slot if fewer than limit requests are in flight. A request that got one must release() it.
+     */
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Returns the slot of a request admitted at startedAt and adjusts the limit by how it went.
+     * @param overloaded Whether the request failed because something downstream was overloaded.
+     */
+    void release(long startedAt, long now, boolean overloaded) {
+        int current = inFlight.getAndDecrement();
+        boolean tooSlow = overloaded || now - startedAt > latencyTargetNanos;
+        synchronized (this) {
+            if (tooSlow) {
+                if (startedAt - lastDecreaseAt > 0) {
+                    limit = Math.max(minLimit, limit * BACKOFF);
+                    lastDecreaseAt = now;
+                }
+            } else if (current * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,26 @@
+package devdarvegga.runnerz.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Application metrics on top of what Spring Boot Actuator records by itself
+ * (http.server.requests per endpoint, JVM, Hikari pool and so on).
+ * Everything is exported through /actuator/prometheus; RunRepository metrics are wired in RunRepositoryConfig.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Records the size of every /api response body.
+     */
+    @Bean
+    FilterRegistrationBean<ResponseSizeMetricsFilter> responseSizeMetricsFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<ResponseSizeMetricsFilter> registration =
+                new FilterRegistrationBean<>(new ResponseSizeMetricsFilter(meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
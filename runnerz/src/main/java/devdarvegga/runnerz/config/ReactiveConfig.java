@@ -0,0 +1,53 @@
+package devdarvegga.runnerz.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Beans the reactive application (the "reactive" profile) needs in place of auto-configuration
+ * that Spring Boot only applies to servlet applications, or picks differently with Tomcat on the classpath.
+ * The servlet filters in MetricsConfig and WireFormatConfig are simply not applied there.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveConfig {
+
+    /**
+     * Serves WebFlux from Netty's event loops. Spring Boot would otherwise run it on Tomcat,
+     * which is also on the classpath for the servlet application.
+     */
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * The JDBC datasource from spring.datasource.*, which Spring Boot backs off from once an R2DBC
+     * ConnectionFactory exists. Startup tasks, archival and the bulk endpoints' repository still run on it.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Spring Boot only auto-configures RestClient.Builder for servlet applications, but UserRestClient
+     * still prefetches users with it at startup, off the event loop.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    RestClient.Builder restClientBuilder() {
+        return RestClient.builder();
+    }
+}
@@ -0,0 +1,76 @@
+package devdarvegga.runnerz.config;
+
+import devdarvegga.runnerz.run.ForwardingRunRepository;
+import devdarvegga.runnerz.run.IndexingRunRepository;
+import devdarvegga.runnerz.run.InvalidatingRunRepository;
+import devdarvegga.runnerz.run.MeteredRunRepository;
+import devdarvegga.runnerz.run.PublishingRunRepository;
+import devdarvegga.runnerz.run.RunChangeLog;
+import devdarvegga.runnerz.run.RunRepository;
+import devdarvegga.runnerz.run.RunResponseCache;
+import devdarvegga.runnerz.run.RunTitleIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+/**
+ * Wires the decorators around the storage repository (JDBC or in-memory, whichever profile is active).
+ * The whole stack is built here, innermost first:
+ *
+ * - IndexingRunRepository keeps the title index in step with storage.
+ * - InvalidatingRunRepository clears the response cache (only with runnerz.response-cache.enabled=true).
+ * - PublishingRunRepository appends to the change log, once the index and caches reflect a change.
+ * - MeteredRunRepository times every call, tagged with the storage class name.
+ *
+ * Repositories that are decorators themselves (ForwardingRunRepository subclasses such as CachingRunRepository,
+ * which delegates to the decorated JDBC bean) are not wrapped, so no call is indexed, published or counted twice.
+ */
+@Configuration
+public class RunRepositoryConfig {
+
+    /**
+     * Static, and resolving its dependencies lazily, so the post-processor does not initialize them early.
+     * Declared with its concrete type, so its ordering is seen before it is instantiated.
+     * The response cache is looked up on the first write rather than here, since it is built from MVC beans.
+     */
+    @Bean
+    static DecoratingPostProcessor runRepositoryDecoratingPostProcessor(ObjectProvider<RunTitleIndex> index,
+                                                                        ObjectProvider<RunResponseCache> responseCache,
+                                                                        ObjectProvider<RunChangeLog> changeLog,
+                                                                        ObjectProvider<MeterRegistry> meterRegistry,
+                                                                        Environment environment) {
+        return new DecoratingPostProcessor(index, responseCache, changeLog, meterRegistry,
+                environment.getProperty("runnerz.response-cache.enabled", Boolean.class, false));
+    }
+
+    record DecoratingPostProcessor(ObjectProvider<RunTitleIndex> index,
+                                   ObjectProvider<RunResponseCache> responseCache,
+                                   ObjectProvider<RunChangeLog> changeLog,
+                                   ObjectProvider<MeterRegistry> meterRegistry,
+                                   boolean responseCacheEnabled) implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof RunRepository storage) || bean instanceof ForwardingRunRepository) {
+                return bean;
+            }
+            RunRepository repository = new IndexingRunRepository(storage, index.getObject());
+            if (responseCacheEnabled) {
+                repository = new InvalidatingRunRepository(repository, () -> responseCache.ifAvailable(RunResponseCache::invalidateAll));
+            }
+            repository = new PublishingRunRepository(repository, changeLog.getObject());
+            return new MeteredRunRepository(repository, meterRegistry.getObject(), AopUtils.getTargetClass(storage).getSimpleName());
+        }
+
+        @Override
+        public int getOrder() {
+            // Ahead of persistence exception translation (LOWEST_PRECEDENCE), which would otherwise proxy the @Repository storage bean first
+            return Ordered.LOWEST_PRECEDENCE - 1;
+        }
+    }
+}
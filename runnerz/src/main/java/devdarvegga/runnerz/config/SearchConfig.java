@@ -0,0 +1,30 @@
+package devdarvegga.runnerz.config;
+
+import devdarvegga.runnerz.run.RunRepository;
+import devdarvegga.runnerz.run.RunTitleIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Loads the full-text title index once the application has started;
+ * from then on every write updates it, see RunRepositoryConfig.
+ */
+@Configuration
+public class SearchConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchConfig.class);
+
+    /**
+     * Loads every run into the title index. Runs before CommandLineRunners such as the JSON loader,
+     * whose writes are then indexed as they happen.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    void rebuildTitleIndex(ApplicationStartedEvent event) {
+        RunTitleIndex index = event.getApplicationContext().getBean(RunTitleIndex.class);
+        index.rebuild(event.getApplicationContext().getBean(RunRepository.class));
+        log.info("Indexed the titles of {} runs.", index.size());
+    }
+}
@@ -0,0 +1,37 @@
+package devdarvegga.runnerz.config;
+
+/**
+ * Token bucket holding up to capacity tokens, refilled continuously at a fixed rate.
+ * Times are System.nanoTime() values passed in by the caller.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long updatedAt;
+
+    /**
+     * Creates a full bucket.
+     */
+    TokenBucket(double capacity, double tokensPerSecond, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1e9;
+        this.tokens = capacity;
+        this.updatedAt = now;
+    }
+
+    /**
+     * Takes a token if one is available.
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next one will be available.
+     */
+    synchronized long tryAcquire(long now) {
+        tokens = Math.min(capacity, tokens + (now - updatedAt) * tokensPerNano);
+        updatedAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
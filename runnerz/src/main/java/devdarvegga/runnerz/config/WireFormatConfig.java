@@ -0,0 +1,83 @@
+package devdarvegga.runnerz.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Compact binary representations of the REST API for internal consumers, chosen with the Accept header
+ * (and Content-Type for request bodies):
+ * Smile (application/x-jackson-smile), which writes each field name once per response and back-references it after,
+ * and CBOR (application/cbor, RFC 8949) for clients without a Smile decoder.
+ * JSON stays the default, including for wildcard Accept headers and requests without one.
+ *
+ * Both formats share the application's Jackson configuration, except that LocalDateTime values are written
+ * as arrays of numbers ([2024, 2, 20, 6, 0]) instead of formatted ISO-8601 strings. Jackson clients with the
+ * Java time module (any Spring client) read both forms.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    /**
+     * Replaces Spring's default Smile converter, which ignores Spring Boot's Jackson settings.
+     * The builder is a prototype bean, so each converter gets its own copy of the Boot configuration.
+     */
+    @Bean
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(smileObjectMapper(builder));
+    }
+
+    /**
+     * Replaces Spring's default CBOR converter, for the same reason.
+     */
+    @Bean
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(cborObjectMapper(builder));
+    }
+
+    /**
+     * Adds Vary: Accept to every /api response, since the same URL (and ETag) now has several representations
+     * and shared caches must not hand a binary body to a JSON client.
+     */
+    @Bean
+    FilterRegistrationBean<Filter> varyAcceptFilter() {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>((request, response, chain) -> {
+            ((HttpServletResponse) response).addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            chain.doFilter(request, response);
+        });
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    /**
+     * ObjectMapper writing Smile. Short string values (such as locations) are back-referenced like field names.
+     * Public so the wire format benchmark measures exactly what the API sends.
+     */
+    public static ObjectMapper smileObjectMapper(Jackson2ObjectMapperBuilder builder) {
+        return binary(builder.factory(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build()));
+    }
+
+    /**
+     * ObjectMapper writing CBOR.
+     */
+    public static ObjectMapper cborObjectMapper(Jackson2ObjectMapperBuilder builder) {
+        return binary(builder.factory(new CBORFactory()));
+    }
+
+    private static ObjectMapper binary(Jackson2ObjectMapperBuilder builder) {
+        return builder.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    }
+}
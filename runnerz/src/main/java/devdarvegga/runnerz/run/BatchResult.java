@@ -0,0 +1,56 @@
+package devdarvegga.runnerz.run;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a chunked bulk write such as RunRepository.saveAll().
+ * Each chunk is applied in its own transaction, so a failing chunk is rolled back
+ * and reported here while the remaining chunks are still written.
+ *
+ * @param saved    Number of runs that were written successfully.
+ * @param failures Chunks that were rolled back, in the order they were attempted.
+ */
+public record BatchResult(int saved, List<ChunkFailure> failures) {
+
+    /**
+     * Describes a single chunk that could not be written.
+     *
+     * @param chunk     Zero-based index of the chunk.
+     * @param fromIndex Index of the first run in the chunk (inclusive).
+     * @param toIndex   Index of the last run in the chunk (exclusive).
+     * @param reason    Message of the underlying failure.
+     */
+    public record ChunkFailure(int chunk, int fromIndex, int toIndex, String reason) {
+    }
+
+    /**
+     * Returns true if at least one chunk was rolled back.
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Returns the runs that were written, in order: those of the given runs, as passed to the bulk write
+     * that produced this result, outside every failed chunk.
+     */
+    public List<Run> savedRuns(List<Run> runs) {
+        if (failures.isEmpty()) {
+            return runs;
+        }
+        boolean[] failed = new boolean[runs.size()];
+        for (ChunkFailure failure : failures) {
+            for (int i = failure.fromIndex(); i < failure.toIndex(); i++) {
+                failed[i] = true;
+            }
+        }
+        List<Run> saved = new ArrayList<>(runs.size());
+        for (int i = 0; i < runs.size(); i++) {
+            if (!failed[i]) {
+                saved.add(runs.get(i));
+            }
+        }
+        return saved;
+    }
+}
@@ -0,0 +1,56 @@
+package devdarvegga.runnerz.run;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Per-item report of a bulk create/update/delete request.
+ * Items are listed in request order; counts summarize them.
+ *
+ * @param succeeded Number of items that were applied.
+ * @param failed    Number of items that were rejected or could not be applied.
+ * @param items     Status of every item, in request order.
+ */
+public record BulkResult(int succeeded, int failed, List<Item> items) {
+
+    /**
+     * Outcome of a single item.
+     */
+    public enum Status {
+        CREATED,
+        UPDATED,
+        DELETED,
+        NOT_FOUND,
+        CONFLICT,
+        INVALID,
+        FAILED;
+
+        boolean succeeded() {
+            return this == CREATED || this == UPDATED || this == DELETED;
+        }
+    }
+
+    /**
+     * Status of one item.
+     *
+     * @param id     ID of the run the item refers to, if known.
+     * @param status Outcome of the item.
+     * @param error  Reason for INVALID or FAILED items; omitted otherwise.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Item(Integer id, Status status, String error) {
+
+        static Item of(Integer id, Status status) {
+            return new Item(id, status, null);
+        }
+    }
+
+    /**
+     * Builds a report from item statuses, computing the counts.
+     */
+    public static BulkResult of(List<Item> items) {
+        int succeeded = (int) items.stream().filter(item -> item.status().succeeded()).count();
+        return new BulkResult(succeeded, items.size() - succeeded, List.copyOf(items));
+    }
+}
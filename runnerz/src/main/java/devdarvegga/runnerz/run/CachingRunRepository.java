@@ -0,0 +1,154 @@
+package devdarvegga.runnerz.run;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-through cache in front of JdbcRunRepository for lookups by ID, enabled with runnerz.cache.enabled=true.
+ * It then replaces the JDBC bean as the primary RunRepository; every other method is passed straight through.
+ *
+ * Entries are held in a Caffeine cache bounded to runnerz.cache.max-size (W-TinyLFU eviction) and expire
+ * runnerz.cache.ttl after being loaded, which bounds staleness from writes made by other processes.
+ * Concurrent misses for the same ID share a single database read. IDs that do not exist are cached as
+ * well, so repeated lookups of missing runs do not reach the database either.
+ *
+ * Writes through this repository invalidate the IDs they touch once the delegate returns, whether the write
+ * succeeded or not. Caffeine waits for an in-flight load of the same ID before invalidating, so a read that
+ * started before the write cannot put the old row back afterwards.
+ *
+ * Hit and miss counts are published as the cache.* meters tagged cache=runs.
+ */
+@Repository
+@Primary
+@Profile("!cache-only")
+@ConditionalOnProperty(value = "runnerz.cache.enabled", havingValue = "true")
+public class CachingRunRepository extends ForwardingRunRepository {
+
+    private final LoadingCache<Integer, Optional<VersionedRun>> runs;
+
+    /**
+     * Constructor injection of the JDBC repository and the cache settings from runnerz.cache.*.
+     */
+    public CachingRunRepository(@Qualifier("jdbcRunRepository") RunRepository delegate,
+                                MeterRegistry meterRegistry,
+                                @Value("${runnerz.cache.max-size:10000}") long maxSize,
+                                @Value("${runnerz.cache.ttl:5m}") Duration ttl) {
+        super(delegate);
+        Assert.isTrue(maxSize > 0, "runnerz.cache.max-size must be positive");
+        this.runs = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(delegate::findVersionedById);
+        CaffeineCacheMetrics.monitor(meterRegistry, runs, "runs");
+    }
+
+    /**
+     * Finds a run by ID, from the cache if present.
+     */
+    @Override
+    public Optional<Run> findById(Integer id) {
+        return runs.get(id).map(VersionedRun::run);
+    }
+
+    /**
+     * Finds a run and its version by ID, from the cache if present.
+     */
+    @Override
+    public Optional<VersionedRun> findVersionedById(Integer id) {
+        return runs.get(id);
+    }
+
+    /**
+     * Finds runs by ID, taking cached entries from the cache and the rest from the delegate in one call.
+     * Runs read from the delegate are not cached, because entries must carry the row version.
+     */
+    @Override
+    public List<Run> findAllById(List<Integer> ids) {
+        Map<Integer, Optional<VersionedRun>> cached = runs.getAllPresent(ids);
+        List<Run> found = new ArrayList<>(ids.size());
+        cached.values().forEach(run -> run.map(VersionedRun::run).ifPresent(found::add));
+        if (cached.size() < ids.size()) {
+            found.addAll(delegate.findAllById(ids.stream().filter(id -> !cached.containsKey(id)).toList()));
+        }
+        return found;
+    }
+
+    @Override
+    public void create(Run run) {
+        try {
+            delegate.create(run);
+        } finally {
+            runs.invalidate(run.id());
+        }
+    }
+
+    @Override
+    public void update(Run run, Integer id) {
+        try {
+            delegate.update(run, id);
+        } finally {
+            runs.invalidate(id);
+        }
+    }
+
+    @Override
+    public void delete(Integer id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            runs.invalidate(id);
+        }
+    }
+
+    @Override
+    public BatchResult saveAll(List<Run> runs) {
+        try {
+            return delegate.saveAll(runs);
+        } finally {
+            this.runs.invalidateAll(runs.stream().map(Run::id).toList());
+        }
+    }
+
+    @Override
+    public List<BulkResult.Item> upsertAll(List<Run> runs) {
+        try {
+            return delegate.upsertAll(runs);
+        } finally {
+            this.runs.invalidateAll(runs.stream().map(Run::id).toList());
+        }
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAll(List<Integer> ids) {
+        try {
+            return delegate.deleteAll(ids);
+        } finally {
+            runs.invalidateAll(ids);
+        }
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAllUnchanged(Map<Integer, Long> versions) {
+        try {
+            return delegate.deleteAllUnchanged(versions);
+        } finally {
+            runs.invalidateAll(versions.keySet());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package devdarvegga.runnerz.run;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Base class for RunRepository decorators: every method is passed straight to the wrapped repository,
+ * so a decorator only overrides the methods it adds behaviour to.
+ *
+ * Also marks a RunRepository as a decorator rather than storage, see RunRepositoryConfig.
+ */
+public abstract class ForwardingRunRepository implements RunRepository {
+
+    protected final RunRepository delegate;
+
+    protected ForwardingRunRepository(RunRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Returns the wrapped repository.
+     */
+    public RunRepository delegate() {
+        return delegate;
+    }
+
+    @Override
+    public List<Run> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Run> findAll(Integer after, int limit) {
+        return delegate.findAll(after, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Run> action) {
+        delegate.streamAll(action);
+    }
+
+    @Override
+    public void streamAll(LocalDateTime from, LocalDateTime to, Consumer<Run> action) {
+        delegate.streamAll(from, to, action);
+    }
+
+    @Override
+    public void streamColumns(LocalDateTime from, LocalDateTime to, Consumer<RunColumns> action) {
+        delegate.streamColumns(from, to, action);
+    }
+
+    @Override
+    public void streamVersioned(LocalDateTime from, LocalDateTime to, Consumer<VersionedRun> action) {
+        delegate.streamVersioned(from, to, action);
+    }
+
+    @Override
+    public Optional<Run> findById(Integer id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Run> findAllById(List<Integer> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public Optional<VersionedRun> findVersionedById(Integer id) {
+        return delegate.findVersionedById(id);
+    }
+
+    @Override
+    public long version() {
+        return delegate.version();
+    }
+
+    @Override
+    public void create(Run run) {
+        delegate.create(run);
+    }
+
+    @Override
+    public void update(Run run, Integer id) {
+        delegate.update(run, id);
+    }
+
+    @Override
+    public void delete(Integer id) {
+        delegate.delete(id);
+    }
+
+    @Override
+    public int count() {
+        return delegate.count();
+    }
+
+    @Override
+    public int approximateCount() {
+        return delegate.approximateCount();
+    }
+
+    @Override
+    public BatchResult saveAll(List<Run> runs) {
+        return delegate.saveAll(runs);
+    }
+
+    @Override
+    public List<BulkResult.Item> upsertAll(List<Run> runs) {
+        return delegate.upsertAll(runs);
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAll(List<Integer> ids) {
+        return delegate.deleteAll(ids);
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAllUnchanged(Map<Integer, Long> versions) {
+        return delegate.deleteAllUnchanged(versions);
+    }
+
+    @Override
+    public List<Run> findByLocation(String location) {
+        return delegate.findByLocation(location);
+    }
+
+    @Override
+    public List<Run> findByLocation(Location location, LocalDateTime from, LocalDateTime to) {
+        return delegate.findByLocation(location, from, to);
+    }
+
+    @Override
+    public List<Run> findByPace(Double minPace, Double maxPace, int limit) {
+        return delegate.findByPace(minPace, maxPace, limit);
+    }
+
+    @Override
+    public List<RunStats> findStats(boolean byLocation, RunStats.Period period, LocalDateTime from, LocalDateTime to) {
+        return delegate.findStats(byLocation, period, from, to);
+    }
+}
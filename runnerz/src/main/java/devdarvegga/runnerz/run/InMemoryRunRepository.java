@@ -1,118 +1,479 @@
 package devdarvegga.runnerz.run;
 
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
-
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
- * Unit tests for the InMemoryRunRepository.
- * Verifies CRUD operations and exception handling using an in-memory data store.
+ * In-memory implementation of RunRepository, active with the "cache-only" profile and used directly in tests.
+ *
+ * Runs are stored in a concurrent primary map keyed by ID, with concurrent secondary indexes
+ * ordered by ID, by start time, by start time per Location, and by pace, so keyset paging, location,
+ * date-range and pace queries read a sub-range instead of scanning every run.
+ *
+ * Reads never lock. Writes to the same ID are serialized by ConcurrentHashMap.compute(),
+ * which also keeps the secondary indexes for that ID in step with the primary map;
+ * writes to different IDs proceed in parallel.
  */
-class InMemoryRunRepositoryTest {
+@Repository
+@Profile("cache-only")
+public class InMemoryRunRepository implements RunRepository {
+
+    // Runs per batch passed to streamColumns() consumers
+    private static final int COLUMN_BATCH_SIZE = 500;
+
+    private final ConcurrentHashMap<Integer, VersionedRun> runs = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Run> idIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<StartKey, Run> startedOnIndex = new ConcurrentSkipListMap<>();
+    private final Map<Location, ConcurrentSkipListMap<StartKey, Run>> locationIndex = new EnumMap<>(Location.class);
+    private final ConcurrentSkipListMap<PaceKey, Run> paceIndex = new ConcurrentSkipListMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    public InMemoryRunRepository() {
+        for (Location location : Location.values()) {
+            locationIndex.put(location, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /**
+     * Secondary index key: start time first, ID as a tie-breaker so runs starting at the same time stay distinct.
+     */
+    private record StartKey(LocalDateTime startedOn, int id) implements Comparable<StartKey> {
+
+        private static final Comparator<StartKey> ORDER =
+                Comparator.comparing(StartKey::startedOn).thenComparingInt(StartKey::id);
+
+        static StartKey of(Run run) {
+            return new StartKey(run.startedOn(), run.id());
+        }
+
+        @Override
+        public int compareTo(StartKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * Pace index key: pace first, ID as a tie-breaker so runs with the same pace stay distinct.
+     */
+    private record PaceKey(double pace, int id) implements Comparable<PaceKey> {
+
+        private static final Comparator<PaceKey> ORDER =
+                Comparator.comparingDouble(PaceKey::pace).thenComparingInt(PaceKey::id);
+
+        static PaceKey of(Run run) {
+            return new PaceKey(run.pace(), run.id());
+        }
+
+        @Override
+        public int compareTo(PaceKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * Returns all runs ordered by ID.
+     */
+    @Override
+    public List<Run> findAll() {
+        return new ArrayList<>(idIndex.values());
+    }
+
+    /**
+     * Returns up to limit runs with an ID greater than after, read from the ID index.
+     */
+    @Override
+    public List<Run> findAll(Integer after, int limit) {
+        var page = after == null ? idIndex : idIndex.tailMap(after, false);
+        return page.values().stream().limit(limit).toList();
+    }
+
+    /**
+     * Passes every run, ordered by ID, to the given consumer.
+     */
+    @Override
+    public void streamAll(Consumer<Run> action) {
+        idIndex.values().forEach(action);
+    }
+
+    /**
+     * Passes every run that started within [from, to), ordered by start time, to the given consumer.
+     */
+    @Override
+    public void streamAll(LocalDateTime from, LocalDateTime to, Consumer<Run> action) {
+        range(startedOnIndex, from, to).values().forEach(action);
+    }
+
+    /**
+     * Passes every run that started within [from, to), ordered by start time, to the given consumer
+     * in batches of columns.
+     */
+    @Override
+    public void streamColumns(LocalDateTime from, LocalDateTime to, Consumer<RunColumns> action) {
+        var batch = new RunColumns(COLUMN_BATCH_SIZE);
+        for (Run run : range(startedOnIndex, from, to).values()) {
+            batch.add(run);
+            if (batch.isFull()) {
+                action.accept(batch);
+                batch.clear();
+            }
+        }
+        if (batch.size() > 0) {
+            action.accept(batch);
+        }
+    }
+
+    /**
+     * Passes every run that started within [from, to), ordered by start time, to the given consumer with its version.
+     * A run replaced or removed while the range is read is skipped.
+     */
+    @Override
+    public void streamVersioned(LocalDateTime from, LocalDateTime to, Consumer<VersionedRun> action) {
+        for (Run run : range(startedOnIndex, from, to).values()) {
+            VersionedRun current = runs.get(run.id());
+            if (current != null && current.run() == run) {
+                action.accept(current);
+            }
+        }
+    }
+
+    /**
+     * Finds a run by its ID, or returns an empty Optional if no run exists with that ID.
+     */
+    @Override
+    public Optional<Run> findById(Integer id) {
+        return Optional.ofNullable(runs.get(id)).map(VersionedRun::run);
+    }
+
+    /**
+     * Returns the runs with the given IDs that exist.
+     */
+    @Override
+    public List<Run> findAllById(List<Integer> ids) {
+        List<Run> found = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            VersionedRun run = runs.get(id);
+            if (run != null) {
+                found.add(run.run());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds a run by its ID together with its version, or empty if no run exists with that ID.
+     */
+    @Override
+    public Optional<VersionedRun> findVersionedById(Integer id) {
+        return Optional.ofNullable(runs.get(id));
+    }
+
+    /**
+     * Returns the version of the collection, advanced by every create, update and delete.
+     */
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Adds a new run. Fails if a run with the same ID already exists.
+     */
+    @Override
+    public void create(Run run) {
+        Assert.notNull(run.location(), "Location must not be null");
+        VersionedRun[] existing = new VersionedRun[1];
+        runs.compute(run.id(), (id, current) -> {
+            if (current != null) {
+                existing[0] = current;
+                return current;
+            }
+            index(run);
+            return new VersionedRun(run, version.incrementAndGet());
+        });
+
+        Assert.state(existing[0] == null, "Failed to create run " + run.title());
+    }
+
+    /**
+     * Replaces an existing run by ID, keeping the given ID. Fails if no run exists with that ID.
+     */
+    @Override
+    public void update(Run run, Integer id) {
+        Assert.notNull(run.location(), "Location must not be null");
+        Run updated = new Run(id, run.title(), run.startedOn(), run.completedOn(), run.miles(), run.location());
+        VersionedRun replaced = runs.computeIfPresent(id, (key, current) -> {
+            unindex(current.run());
+            index(updated);
+            return new VersionedRun(updated, version.incrementAndGet());
+        });
+
+        Assert.state(replaced != null, "Failed to update run " + run.title());
+    }
+
+    /**
+     * Removes a run by ID. Fails if no run exists with that ID.
+     */
+    @Override
+    public void delete(Integer id) {
+        boolean[] removed = new boolean[1];
+        runs.computeIfPresent(id, (key, current) -> {
+            unindex(current.run());
+            version.incrementAndGet();
+            removed[0] = true;
+            return null;
+        });
+
+        Assert.state(removed[0], "Failed to delete run " + id);
+    }
+
+    /**
+     * Returns the number of runs held in memory.
+     */
+    @Override
+    public int count() {
+        return runs.size();
+    }
 
-    InMemoryRunRepository repository;
+    /**
+     * The in-memory count is always current, so this is the same as count().
+     */
+    @Override
+    public int approximateCount() {
+        return count();
+    }
 
     /**
-     * Initializes the repository and seeds it with two sample runs before each test.
+     * Creates each run in turn. There are no transactions in memory,
+     * so every rejected run is reported as its own single-run chunk.
      */
-    @BeforeEach
-    void setUp() {
-        repository = new InMemoryRunRepository();
+    @Override
+    public BatchResult saveAll(List<Run> runs) {
+        int saved = 0;
+        List<BatchResult.ChunkFailure> failures = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i++) {
+            try {
+                create(runs.get(i));
+                saved++;
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                failures.add(new BatchResult.ChunkFailure(i, i, i + 1, e.getMessage()));
+            }
+        }
+        return new BatchResult(saved, List.copyOf(failures));
+    }
 
-        repository.create(new Run(1,
-                "Monday Morning Run",
-                LocalDateTime.now(),
-                LocalDateTime.now().plus(30, ChronoUnit.MINUTES),
-                3,
-                Location.INDOOR));
+    /**
+     * Creates or replaces each run in turn; a run that cannot be written is reported as FAILED on its own.
+     */
+    @Override
+    public List<BulkResult.Item> upsertAll(List<Run> runs) {
+        List<BulkResult.Item> items = new ArrayList<>(runs.size());
+        for (Run run : runs) {
+            try {
+                if (this.runs.containsKey(run.id())) {
+                    update(run, run.id());
+                    items.add(BulkResult.Item.of(run.id(), BulkResult.Status.UPDATED));
+                } else {
+                    create(run);
+                    items.add(BulkResult.Item.of(run.id(), BulkResult.Status.CREATED));
+                }
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                items.add(new BulkResult.Item(run.id(), BulkResult.Status.FAILED, e.getMessage()));
+            }
+        }
+        return items;
+    }
 
-        repository.create(new Run(2,
-                "Wednesday Evening Run",
-                LocalDateTime.now(),
-                LocalDateTime.now().plus(60, ChronoUnit.MINUTES),
-                6,
-                Location.INDOOR));
+    /**
+     * Deletes each run in turn, reporting IDs that did not exist as NOT_FOUND.
+     */
+    @Override
+    public List<BulkResult.Item> deleteAll(List<Integer> ids) {
+        List<BulkResult.Item> items = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            try {
+                delete(id);
+                items.add(BulkResult.Item.of(id, BulkResult.Status.DELETED));
+            } catch (IllegalStateException e) {
+                items.add(BulkResult.Item.of(id, BulkResult.Status.NOT_FOUND));
+            }
+        }
+        return items;
     }
 
     /**
-     * Verifies that all seeded runs are returned.
+     * Deletes each run in turn if it is still at the given version, reporting the others as CONFLICT.
      */
-    @Test
-    void shouldFindAllRuns() {
-        List<Run> runs = repository.findAll();
-        assertEquals(2, runs.size());
+    @Override
+    public List<BulkResult.Item> deleteAllUnchanged(Map<Integer, Long> versions) {
+        List<BulkResult.Item> items = new ArrayList<>(versions.size());
+        versions.forEach((id, expected) -> {
+            boolean[] removed = new boolean[1];
+            runs.computeIfPresent(id, (key, current) -> {
+                if (current.version() != expected) {
+                    return current;
+                }
+                unindex(current.run());
+                version.incrementAndGet();
+                removed[0] = true;
+                return null;
+            });
+            items.add(BulkResult.Item.of(id, removed[0] ? BulkResult.Status.DELETED : BulkResult.Status.CONFLICT));
+        });
+        return items;
     }
 
     /**
-     * Verifies that a run can be retrieved by a valid ID.
+     * Returns all runs at the given location, ordered by start time; none for an unknown location.
      */
-    @Test
-    void shouldFindRunWithValidId() {
-        var run = repository.findById(1).get();
-        assertEquals("Monday Morning Run", run.title());
-        assertEquals(3, run.miles());
+    @Override
+    public List<Run> findByLocation(String location) {
+        try {
+            return findByLocation(Location.valueOf(location), null, null);
+        } catch (IllegalArgumentException e) {
+            // Not a Location, so no run can match
+            return List.of();
+        }
     }
 
     /**
-     * Verifies that requesting a non-existent run throws a RunNotFoundException.
+     * Returns runs at the given location that started within [from, to), read from the location index.
      */
-    @Test
-    void shouldNotFindRunWithInvalidId() {
-        RunNotFoundException notFoundException = assertThrows(
-                RunNotFoundException.class,
-                () -> repository.findById(3).get()
-        );
+    @Override
+    public List<Run> findByLocation(Location location, LocalDateTime from, LocalDateTime to) {
+        return new ArrayList<>(range(locationIndex.get(location), from, to).values());
+    }
 
-        assertEquals("Run Not Found", notFoundException.getMessage());
+    /**
+     * Returns up to limit runs with a pace within [minPace, maxPace], fastest first, read from the pace index.
+     */
+    @Override
+    public List<Run> findByPace(Double minPace, Double maxPace, int limit) {
+        NavigableMap<PaceKey, Run> range = paceIndex;
+        if (minPace != null) {
+            range = range.tailMap(new PaceKey(minPace, Integer.MIN_VALUE), true);
+        }
+        if (maxPace != null) {
+            range = range.headMap(new PaceKey(maxPace, Integer.MAX_VALUE), true);
+        }
+        return range.values().stream().limit(limit).toList();
     }
 
     /**
-     * Verifies that a new run can be created and added to the repository.
+     * Computes the same statistics as the JDBC implementation over the runs started within [from, to).
+     * Percentiles are continuous (linearly interpolated), matching PERCENTILE_CONT.
      */
-    @Test
-    void shouldCreateNewRun() {
-        repository.create(new Run(3,
-                "Friday Morning Run",
-                LocalDateTime.now(),
-                LocalDateTime.now().plus(30, ChronoUnit.MINUTES),
-                3,
-                Location.INDOOR));
+    @Override
+    public List<RunStats> findStats(boolean byLocation, RunStats.Period period, LocalDateTime from, LocalDateTime to) {
+        Map<Location, Map<LocalDate, List<Run>>> groups = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+        for (Run run : range(startedOnIndex, from, to).values()) {
+            groups.computeIfAbsent(byLocation ? run.location() : null, location -> new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .computeIfAbsent(periodStart(run.startedOn(), period), start -> new ArrayList<>())
+                    .add(run);
+        }
+
+        if (groups.isEmpty() && !byLocation && period == null) {
+            return List.of(new RunStats(null, null, 0, 0, 0, 0, 0, 0));
+        }
+
+        List<RunStats> stats = new ArrayList<>();
+        groups.forEach((location, periods) -> periods.forEach((start, group) -> stats.add(stats(location, start, group))));
+        return stats;
+    }
+
+    private static RunStats stats(Location location, LocalDate period, List<Run> group) {
+        long miles = 0;
+        double minutes = 0;
+        double[] paces = new double[group.size()];
+        for (int i = 0; i < group.size(); i++) {
+            Run run = group.get(i);
+            double runMinutes = Duration.between(run.startedOn(), run.completedOn()).toSeconds() / 60.0;
+            miles += run.miles();
+            minutes += runMinutes;
+            paces[i] = runMinutes / run.miles();
+        }
+        Arrays.sort(paces);
+        return new RunStats(location, period, group.size(), miles, minutes, minutes / miles,
+                percentile(paces, 0.5), percentile(paces, 0.9));
+    }
+
+    private static double percentile(double[] sorted, double fraction) {
+        double position = fraction * (sorted.length - 1);
+        int lower = (int) Math.floor(position);
+        int upper = (int) Math.ceil(position);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (position - lower);
+    }
 
-        List<Run> runs = repository.findAll();
-        assertEquals(3, runs.size());
+    private static LocalDate periodStart(LocalDateTime startedOn, RunStats.Period period) {
+        if (period == null) {
+            return null;
+        }
+        LocalDate day = startedOn.toLocalDate();
+        return switch (period) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
     }
 
     /**
-     * Verifies that an existing run can be updated with new values.
+     * Returns the part of a start-time index within [from, to); either bound may be null.
      */
-    @Test
-    void shouldUpdateRun() {
-        repository.update(new Run(1,
-                "Monday Morning Run",
-                LocalDateTime.now(),
-                LocalDateTime.now().plus(30, ChronoUnit.MINUTES),
-                5,
-                Location.OUTDOOR), 1);
+    private static NavigableMap<StartKey, Run> range(ConcurrentSkipListMap<StartKey, Run> index, LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return index;
+        }
+        if (from == null) {
+            return index.headMap(new StartKey(to, Integer.MIN_VALUE), false);
+        }
+        if (to == null) {
+            return index.tailMap(new StartKey(from, Integer.MIN_VALUE), true);
+        }
+        if (!from.isBefore(to)) {
+            return Collections.emptyNavigableMap();
+        }
+        return index.subMap(new StartKey(from, Integer.MIN_VALUE), true, new StartKey(to, Integer.MIN_VALUE), false);
+    }
 
-        var run = repository.findById(1).get();
-        assertEquals("Monday Morning Run", run.title());
-        assertEquals(5, run.miles());
-        assertEquals(Location.OUTDOOR, run.location());
+    /**
+     * Adds a run to the secondary indexes. Only called while holding the primary map entry for its ID.
+     */
+    private void index(Run run) {
+        StartKey key = StartKey.of(run);
+        idIndex.put(run.id(), run);
+        startedOnIndex.put(key, run);
+        locationIndex.get(run.location()).put(key, run);
+        paceIndex.put(PaceKey.of(run), run);
     }
 
     /**
-     * Verifies that a run can be deleted by ID.
+     * Removes a run from the secondary indexes. Only called while holding the primary map entry for its ID.
      */
-    @Test
-    void shouldDeleteRun() {
-        repository.delete(1);
-        List<Run> runs = repository.findAll();
-        assertEquals(1, runs.size());
+    private void unindex(Run run) {
+        StartKey key = StartKey.of(run);
+        idIndex.remove(run.id());
+        startedOnIndex.remove(key);
+        locationIndex.get(run.location()).remove(key);
+        paceIndex.remove(PaceKey.of(run));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package devdarvegga.runnerz.run;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RunRepository decorator that keeps the RunTitleIndex in step with every write to the wrapped repository.
+ *
+ * The index is updated after the delegate returns, and only for runs the delegate reports as written:
+ * runs in failed saveAll() chunks and FAILED/NOT_FOUND bulk items are left as they were.
+ */
+public class IndexingRunRepository extends ForwardingRunRepository {
+
+    private final RunTitleIndex index;
+
+    public IndexingRunRepository(RunRepository delegate, RunTitleIndex index) {
+        super(delegate);
+        this.index = index;
+    }
+
+    @Override
+    public void create(Run run) {
+        delegate.create(run);
+        index.put(run);
+    }
+
+    @Override
+    public void update(Run run, Integer id) {
+        delegate.update(run, id);
+        index.put(new Run(id, run.title(), run.startedOn(), run.completedOn(), run.miles(), run.location()));
+    }
+
+    @Override
+    public void delete(Integer id) {
+        delegate.delete(id);
+        index.remove(id);
+    }
+
+    @Override
+    public BatchResult saveAll(List<Run> runs) {
+        BatchResult result = delegate.saveAll(runs);
+        result.savedRuns(runs).forEach(index::put);
+        return result;
+    }
+
+    @Override
+    public List<BulkResult.Item> upsertAll(List<Run> runs) {
+        List<BulkResult.Item> items = delegate.upsertAll(runs);
+        for (int i = 0; i < items.size(); i++) {
+            BulkResult.Status status = items.get(i).status();
+            if (status == BulkResult.Status.CREATED || status == BulkResult.Status.UPDATED) {
+                index.put(runs.get(i));
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAll(List<Integer> ids) {
+        return unindexDeleted(delegate.deleteAll(ids));
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAllUnchanged(Map<Integer, Long> versions) {
+        return unindexDeleted(delegate.deleteAllUnchanged(versions));
+    }
+
+    private List<BulkResult.Item> unindexDeleted(List<BulkResult.Item> items) {
+        for (BulkResult.Item item : items) {
+            if (item.status() == BulkResult.Status.DELETED) {
+                index.remove(item.id());
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,84 @@
+package devdarvegga.runnerz.run;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RunRepository decorator that runs a callback after every write to the wrapped repository,
+ * used to invalidate caches of data derived from many runs, such as RunResponseCache.
+ *
+ * The callback runs once the delegate returns, whether the write succeeded or not,
+ * since a failed bulk write may still have changed some runs.
+ */
+public class InvalidatingRunRepository extends ForwardingRunRepository {
+
+    private final Runnable invalidation;
+
+    public InvalidatingRunRepository(RunRepository delegate, Runnable invalidation) {
+        super(delegate);
+        this.invalidation = invalidation;
+    }
+
+    @Override
+    public void create(Run run) {
+        try {
+            delegate.create(run);
+        } finally {
+            invalidation.run();
+        }
+    }
+
+    @Override
+    public void update(Run run, Integer id) {
+        try {
+            delegate.update(run, id);
+        } finally {
+            invalidation.run();
+        }
+    }
+
+    @Override
+    public void delete(Integer id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            invalidation.run();
+        }
+    }
+
+    @Override
+    public BatchResult saveAll(List<Run> runs) {
+        try {
+            return delegate.saveAll(runs);
+        } finally {
+            invalidation.run();
+        }
+    }
+
+    @Override
+    public List<BulkResult.Item> upsertAll(List<Run> runs) {
+        try {
+            return delegate.upsertAll(runs);
+        } finally {
+            invalidation.run();
+        }
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAll(List<Integer> ids) {
+        try {
+            return delegate.deleteAll(ids);
+        } finally {
+            invalidation.run();
+        }
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAllUnchanged(Map<Integer, Long> versions) {
+        try {
+            return delegate.deleteAllUnchanged(versions);
+        } finally {
+            invalidation.run();
+        }
+    }
+}
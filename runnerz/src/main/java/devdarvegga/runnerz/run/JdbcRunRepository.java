@@ -1,122 +1,773 @@
 package devdarvegga.runnerz.run;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * JDBC-backed implementation of RunRepository.
- * Uses JdbcClient to interact with the 'run' table in the database.
+ * Uses JdbcClient to interact with the 'run' table in the database, partitioned by month of started_on
+ * (see RunPartitions): writes go to the partition of the run's month and keep run_id in step,
+ * and reads bounded by start time only touch the partitions of the months in range.
+ * Active unless the "cache-only" profile selects InMemoryRunRepository instead.
  */
 @Repository
+@Profile("!cache-only")
 public class JdbcRunRepository implements RunRepository {
 
+    private static final Logger log = LoggerFactory.getLogger(JdbcRunRepository.class);
+
+    private static final String COLUMNS = "id, title, started_on, completed_on, miles, location";
+
+    private static final String VERSIONED_COLUMNS = COLUMNS + ", version";
+
+    private static final String SELECT_COLUMNS = "SELECT " + COLUMNS + " FROM run";
+
+    private static final String SELECT_VERSIONED_COLUMNS = "SELECT " + VERSIONED_COLUMNS + " FROM run";
+
+    // Rows fetched per round trip when streaming; keeps the driver from buffering the whole result
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    // Columns for streamColumns(), in RunColumns.add() order
+    private static final String PRIMITIVE_COLUMNS = "id, title, started_on, duration_seconds, miles, location, pace";
+
+    private static final Location[] LOCATIONS = Location.values();
+
+    // Reads columns by position in SELECT_COLUMNS order, rather than by name through reflection as DataClassRowMapper does
+    private static final RowMapper<Run> RUN_ROW_MAPPER = JdbcRunRepository::mapRun;
+
     private final JdbcClient jdbcClient;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate chunkTransactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final RunPartitions partitions;
+    private final int batchSize;
+
+    // Cached row count for approximateCount(); -1 until first loaded, resynced by every count()
+    private final AtomicInteger cachedCount = new AtomicInteger(-1);
 
     /**
-     * Constructor injection of JdbcClient.
+     * Constructor injection of the JDBC helpers.
+     * JdbcTemplate is used for batch statements, which JdbcClient does not support,
+     * and TransactionTemplate wraps each write, and each batch chunk in its own nested transaction.
+     * RunPartitions creates the partitions writes go to. The chunk size is read from runnerz.jdbc.batch-size.
      */
-    public JdbcRunRepository(JdbcClient jdbcClient) {
+    public JdbcRunRepository(JdbcClient jdbcClient,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             RunPartitions partitions,
+                             @Value("${runnerz.jdbc.batch-size:500}") int batchSize) {
+        Assert.isTrue(batchSize > 0, "runnerz.jdbc.batch-size must be positive");
         this.jdbcClient = jdbcClient;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.chunkTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.partitions = partitions;
+        this.batchSize = batchSize;
     }
 
     /**
      * Retrieves all runs from the database.
      */
     public List<Run> findAll() {
-        return jdbcClient.sql("SELECT * FROM run")
-                .query(Run.class)
+        return jdbcClient.sql(SELECT_COLUMNS)
+                .query(RUN_ROW_MAPPER)
                 .list();
     }
 
+    /**
+     * Retrieves one page of runs ordered by ID using keyset pagination.
+     * Seeks past the given ID on the primary key index of run_id, which spans all partitions, instead of using OFFSET,
+     * so every page costs the same regardless of how deep the client has paged, then reads the page by ID.
+     */
+    public List<Run> findAll(Integer after, int limit) {
+        return jdbcClient.sql(SELECT_COLUMNS + " WHERE id IN (SELECT id FROM run_id WHERE id > :after ORDER BY id LIMIT :limit) ORDER BY id")
+                .param("after", after == null ? Integer.MIN_VALUE : after)
+                .param("limit", limit)
+                .query(RUN_ROW_MAPPER)
+                .list();
+    }
+
+    /**
+     * Streams every run ordered by ID to the given consumer.
+     * Rows are read from a forward-only cursor with a bounded fetch size inside a read-only
+     * transaction (PostgreSQL only honours the fetch size with auto-commit off),
+     * so memory use does not grow with the size of the table.
+     */
+    public void streamAll(Consumer<Run> action) {
+        readOnlyTransactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(SELECT_COLUMNS + " ORDER BY id", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (ResultSet rs) -> action.accept(RUN_ROW_MAPPER.mapRow(rs, 0))));
+    }
+
+    /**
+     * Streams runs that started within [from, to), ordered by start time, in the same way as streamAll().
+     * Served by the started_on indexes of the partitions in range. Either bound may be null.
+     */
+    public void streamAll(LocalDateTime from, LocalDateTime to, Consumer<Run> action) {
+        streamRange(COLUMNS, from, to, rs -> action.accept(RUN_ROW_MAPPER.mapRow(rs, 0)));
+    }
+
+    /**
+     * Streams runs that started within [from, to), ordered by start time, with their row versions,
+     * in the same way as streamAll().
+     */
+    public void streamVersioned(LocalDateTime from, LocalDateTime to, Consumer<VersionedRun> action) {
+        streamRange(VERSIONED_COLUMNS, from, to, rs -> action.accept(new VersionedRun(RUN_ROW_MAPPER.mapRow(rs, 0), rs.getLong(7))));
+    }
+
+    /**
+     * Streams runs that started within [from, to), ordered by start time, in batches of columns
+     * read straight from the result set, without creating a Run per row.
+     * A null miles column is read as 0.
+     */
+    public void streamColumns(LocalDateTime from, LocalDateTime to, Consumer<RunColumns> action) {
+        var batch = new RunColumns(STREAM_FETCH_SIZE);
+        streamRange(PRIMITIVE_COLUMNS, from, to, rs -> {
+            // Converted here rather than with EXTRACT(EPOCH ...), which H2 computes in NUMERIC at several KB a row
+            long startedOn = rs.getObject(3, LocalDateTime.class).toEpochSecond(ZoneOffset.UTC);
+            batch.add(rs.getInt(1), rs.getString(2), startedOn, rs.getLong(4), rs.getInt(5), rs.getInt(6), rs.getDouble(7));
+            if (batch.isFull()) {
+                action.accept(batch);
+                batch.clear();
+            }
+        });
+        if (batch.size() > 0) {
+            action.accept(batch);
+        }
+    }
+
+    /**
+     * Selects the given columns of runs that started within [from, to) from the partitions in range, ordered by start time,
+     * on a forward-only cursor as streamAll() does, passing each row to the handler.
+     */
+    private void streamRange(String columns, LocalDateTime from, LocalDateTime to, RowCallbackHandler handler) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (from != null) {
+            conditions.add("started_on >= ?");
+            params.add(from);
+        }
+        if (to != null) {
+            conditions.add("started_on < ?");
+            params.add(to);
+        }
+        String sql = "SELECT " + columns + " FROM " + partitions.source(from, to) + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY started_on, id";
+
+        readOnlyTransactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, handler));
+    }
+
     /**
      * Finds a run by its ID.
      * Returns an Optional containing the run if found.
      */
     public Optional<Run> findById(Integer id) {
-        return jdbcClient.sql("SELECT id, title, started_on, completed_on, miles, location FROM run WHERE id = :id")
+        return jdbcClient.sql(SELECT_COLUMNS + " WHERE id = :id")
                 .param("id", id)
-                .query(Run.class)
+                .query(RUN_ROW_MAPPER)
                 .optional();
     }
 
     /**
-     * Retrieves all runs that match the given location.
+     * Retrieves the runs with the given IDs using a single IN query.
      */
-    public List<Run> findByLocation(String location) {
-        return jdbcClient.sql("SELECT * FROM run WHERE location = :location")
-                .param("location", location)
-                .query(Run.class)
+    public List<Run> findAllById(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcClient.sql(SELECT_COLUMNS + " WHERE id IN (:ids)")
+                .param("ids", ids)
+                .query(RUN_ROW_MAPPER)
                 .list();
     }
 
     /**
-     * Inserts a new run into the database.
-     * Asserts that exactly one row was affected.
+     * Retrieves all runs that match the given location; none for an unknown location.
      */
-    public void create(Run run) {
-        var updated = jdbcClient.sql("INSERT INTO run (id, title, started_on, completed_on, miles, location) VALUES (?, ?, ?, ?, ?, ?)")
-                .params(List.of(
-                        run.id(),
-                        run.title(),
-                        run.startedOn(),
-                        run.completedOn(),
-                        run.miles(),
-                        run.location().toString()
-                ))
-                .update();
+    public List<Run> findByLocation(String location) {
+        try {
+            return findByLocation(Location.valueOf(location), null, null);
+        } catch (IllegalArgumentException e) {
+            // Not a Location, so no run can match
+            return List.of();
+        }
+    }
+
+    /**
+     * Finds a run by its ID together with its row version.
+     */
+    public Optional<VersionedRun> findVersionedById(Integer id) {
+        return jdbcClient.sql(SELECT_VERSIONED_COLUMNS + " WHERE id = :id")
+                .param("id", id)
+                .query((rs, rowNum) -> new VersionedRun(RUN_ROW_MAPPER.mapRow(rs, rowNum), rs.getLong(7)))
+                .optional();
+    }
+
+    /**
+     * Returns the version of the run table as a whole, read from the single-row run_version table.
+     */
+    public long version() {
+        return jdbcClient.sql("SELECT version FROM run_version")
+                .query(Long.class)
+                .single();
+    }
+
+    /**
+     * Increments the table version. Must be the last statement of the transaction of the write it versions,
+     * and run once per transaction: the row lock taken by the UPDATE orders versions by commit, so a client
+     * can never miss a change that committed with a lower version after it read a higher one, and every
+     * writer waits for that lock, so it is held only from here to the commit.
+     * Chunked writes joining a caller's transaction run it once after their last chunk (see writeChunk()),
+     * leaving the lock held until the caller commits; the caller's own statements should come first.
+     * Row versions come from the run_version_seq sequence instead, which takes no lock.
+     */
+    private void advanceVersion() {
+        jdbcClient.sql("UPDATE run_version SET version = version + 1").update();
+    }
+
+    /**
+     * Retrieves runs at the given location that started within [from, to), ordered by start time.
+     * Either bound may be null. Served by the (location, started_on) indexes of the partitions in range.
+     */
+    public List<Run> findByLocation(Location location, LocalDateTime from, LocalDateTime to) {
+        var sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM ").append(partitions.source(from, to))
+                .append(" WHERE location = :location");
+        if (from != null) {
+            sql.append(" AND started_on >= :from");
+        }
+        if (to != null) {
+            sql.append(" AND started_on < :to");
+        }
+        sql.append(" ORDER BY started_on, id");
+
+        var statement = jdbcClient.sql(sql.toString()).param("location", location.ordinal());
+        if (from != null) {
+            statement = statement.param("from", from);
+        }
+        if (to != null) {
+            statement = statement.param("to", to);
+        }
+        return statement.query(RUN_ROW_MAPPER).list();
+    }
+
+    /**
+     * Retrieves up to limit runs with a pace (minutes per mile) within [minPace, maxPace], fastest first.
+     * Either bound may be null. Served by the (pace, id) index, so the fastest runs are read
+     * from the start of the index without sorting the table.
+     */
+    public List<Run> findByPace(Double minPace, Double maxPace, int limit) {
+        var sql = new StringBuilder(SELECT_COLUMNS);
+        List<String> conditions = new ArrayList<>();
+        if (minPace != null) {
+            conditions.add("pace >= :minPace");
+        }
+        if (maxPace != null) {
+            conditions.add("pace <= :maxPace");
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY pace, id LIMIT :limit");
+
+        var statement = jdbcClient.sql(sql.toString()).param("limit", limit);
+        if (minPace != null) {
+            statement = statement.param("minPace", minPace);
+        }
+        if (maxPace != null) {
+            statement = statement.param("maxPace", maxPace);
+        }
+        return statement.query(RUN_ROW_MAPPER).list();
+    }
+
+    /**
+     * Computes run statistics in the database, optionally grouped by location and/or period
+     * and limited to runs started within [from, to).
+     * Only one row per group is returned, so the result size does not depend on the number of runs.
+     */
+    public List<RunStats> findStats(boolean byLocation, RunStats.Period period, LocalDateTime from, LocalDateTime to) {
+        List<String> groups = new ArrayList<>();
+        if (byLocation) {
+            groups.add("location");
+        }
+        if (period != null) {
+            groups.add("period");
+        }
+
+        var sql = new StringBuilder("SELECT ")
+                .append(byLocation ? "location" : "CAST(NULL AS SMALLINT) AS location")
+                .append(period != null ? ", period" : ", CAST(NULL AS DATE) AS period")
+                .append("""
+                        , COUNT(*) AS runs,
+                          SUM(miles) AS miles,
+                          SUM(minutes) AS minutes,
+                          SUM(minutes) / SUM(miles) AS avg_pace,
+                          PERCENTILE_CONT(0.5) WITHIN GROUP (ORDER BY pace) AS median_pace,
+                          PERCENTILE_CONT(0.9) WITHIN GROUP (ORDER BY pace) AS p90_pace
+                        FROM (SELECT location, miles, pace, CAST(duration_seconds AS DOUBLE PRECISION) / 60 AS minutes""");
+        if (period != null) {
+            sql.append(", ").append(periodStart(period)).append(" AS period");
+        }
+        sql.append(" FROM ").append(partitions.source(from, to)).append(startedOnRange(from, to)).append(") r");
+        if (!groups.isEmpty()) {
+            String groupBy = String.join(", ", groups);
+            sql.append(" GROUP BY ").append(groupBy).append(" ORDER BY ").append(groupBy);
+        }
+
+        var statement = jdbcClient.sql(sql.toString());
+        if (from != null) {
+            statement = statement.param("from", from);
+        }
+        if (to != null) {
+            statement = statement.param("to", to);
+        }
+        return statement.query((rs, rowNum) -> {
+            int location = rs.getInt("location");
+            return new RunStats(
+                    rs.wasNull() ? null : LOCATIONS[location],
+                    rs.getObject("period", LocalDate.class),
+                    rs.getLong("runs"),
+                    rs.getLong("miles"),
+                    rs.getDouble("minutes"),
+                    rs.getDouble("avg_pace"),
+                    rs.getDouble("median_pace"),
+                    rs.getDouble("p90_pace"));
+        }).list();
+    }
+
+    /**
+     * SQL expression for the first day of the period containing started_on.
+     * Weeks are computed from the ISO day of week rather than DATE_TRUNC('week'),
+     * which starts weeks on Sunday in H2 but on Monday in PostgreSQL.
+     */
+    private static String periodStart(RunStats.Period period) {
+        return switch (period) {
+            case DAY -> "CAST(started_on AS DATE)";
+            case WEEK -> "CAST(started_on AS DATE) - CAST(EXTRACT(ISODOW FROM started_on) - 1 AS INT)";
+            case MONTH -> "CAST(DATE_TRUNC('month', started_on) AS DATE)";
+        };
+    }
+
+    /**
+     * Maps a row of SELECT_COLUMNS (optionally followed by more columns) to a Run.
+     */
+    private static Run mapRun(ResultSet rs, int rowNum) throws SQLException {
+        // Read first, so wasNull() refers to it
+        int miles = rs.getInt(5);
+        Integer nullableMiles = rs.wasNull() ? null : miles;
+        return new Run(
+                rs.getInt(1),
+                rs.getString(2),
+                rs.getObject(3, LocalDateTime.class),
+                rs.getObject(4, LocalDateTime.class),
+                nullableMiles,
+                LOCATIONS[rs.getInt(6)]);
+    }
 
-        Assert.state(updated == 1, "Failed to create run " + run.title());
+    /**
+     * Builds a WHERE clause bounding started_on to [:from, :to); either bound may be null.
+     */
+    private static String startedOnRange(LocalDateTime from, LocalDateTime to) {
+        List<String> conditions = new ArrayList<>();
+        if (from != null) {
+            conditions.add("started_on >= :from");
+        }
+        if (to != null) {
+            conditions.add("started_on < :to");
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * Inserts a new run into the partition of its month with a new row version and its derived duration and pace,
+     * and records its ID in run_id, which rejects an ID already used in any partition.
+     */
+    public void create(Run run) {
+        partitions.ensure(List.of(run.startedOn()));
+        transactionTemplate.executeWithoutResult(status -> {
+            insertRows(List.of(run));
+            advanceVersion();
+        });
+        adjustCachedCount(1);
     }
 
     /**
-     * Updates an existing run by ID.
-     * Asserts that exactly one row was affected.
+     * Updates an existing run by ID, recomputing its duration and pace, and gives it a new row version.
+     * A run whose start time moves to another month is moved to that month's partition.
+     * Asserts that the run exists.
      */
     public void update(Run run, Integer id) {
-        var updated = jdbcClient.sql("UPDATE run SET title = ?, started_on = ?, completed_on = ?, miles = ?, location = ? WHERE id = ?")
-                .params(List.of(
-                        run.title(),
-                        run.startedOn(),
-                        run.completedOn(),
-                        run.miles(),
-                        run.location().toString(),
-                        id
-                ))
-                .update();
+        partitions.ensure(List.of(run.startedOn()));
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Integer, YearMonth> located = locate(List.of(id));
+            Assert.state(located.containsKey(id), "Failed to update run " + run.title());
 
-        Assert.state(updated == 1, "Failed to update run " + run.title());
+            replaceRows(List.of(new Run(id, run.title(), run.startedOn(), run.completedOn(), run.miles(), run.location())), located);
+            advanceVersion();
+        });
     }
 
     /**
-     * Deletes a run by ID.
-     * Asserts that exactly one row was affected.
+     * Deletes a run by ID and advances the table version.
+     * Asserts that the run exists.
      */
     public void delete(Integer id) {
-        var updated = jdbcClient.sql("DELETE FROM run WHERE id = :id")
-                .param("id", id)
-                .update();
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Integer, YearMonth> located = locate(List.of(id));
+            Assert.state(located.containsKey(id), "Failed to delete run " + id);
 
-        Assert.state(updated == 1, "Failed to delete run " + id);
+            deleteRows(located);
+            advanceVersion();
+        });
+        adjustCachedCount(-1);
     }
 
     /**
      * Returns the total number of runs in the database.
+     * Counts run_id, which has one row per run across all partitions, and refreshes the cached count used by approximateCount().
      */
     public int count() {
-        return jdbcClient.sql("SELECT * FROM run")
-                .query()
-                .listOfRows()
-                .size();
+        int count = jdbcClient.sql("SELECT COUNT(*) FROM run_id")
+                .query(Integer.class)
+                .single();
+        cachedCount.set(count);
+        return count;
+    }
+
+    /**
+     * Returns the cached number of runs without querying the database.
+     * The counter is loaded on first use and adjusted by create(), delete() and saveAll();
+     * rows written by other processes or rolled back afterwards are only picked up by the next count().
+     */
+    public int approximateCount() {
+        int count = cachedCount.get();
+        return count < 0 ? count() : count;
+    }
+
+    /**
+     * Applies a delta to the cached count, if it has been loaded.
+     */
+    private void adjustCachedCount(int delta) {
+        cachedCount.getAndUpdate(count -> count < 0 ? count : Math.max(0, count + delta));
+    }
+
+    /**
+     * Saves a list of runs using JDBC batch inserts.
+     * Runs are written in chunks of runnerz.jdbc.batch-size, each chunk in its own transaction,
+     * or under a savepoint of the caller's transaction if one is active.
+     * A failing chunk is rolled back and reported; the remaining chunks are still written,
+     * and the caller's transaction can still commit them.
+     */
+    public BatchResult saveAll(List<Run> runs) {
+        partitions.ensure(runs.stream().map(Run::startedOn).toList());
+        boolean joined = TransactionSynchronizationManager.isActualTransactionActive();
+        int saved = 0;
+        List<BatchResult.ChunkFailure> failures = new ArrayList<>();
+
+        for (int from = 0, chunk = 0; from < runs.size(); from += batchSize, chunk++) {
+            int to = Math.min(from + batchSize, runs.size());
+            List<Run> slice = runs.subList(from, to);
+            try {
+                saved += writeChunk(joined, () -> insertRows(slice));
+            } catch (DataAccessException | IllegalStateException e) {
+                String reason = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                log.warn("Failed to save runs {}..{} (chunk {}): {}", from, to - 1, chunk, reason);
+                failures.add(new BatchResult.ChunkFailure(chunk, from, to, reason));
+            }
+        }
+
+        if (joined && saved > 0) {
+            advanceVersion();
+        }
+        adjustCachedCount(saved);
+        return new BatchResult(saved, List.copyOf(failures));
+    }
+
+    /**
+     * Creates or replaces runs by ID in chunks of runnerz.jdbc.batch-size, one transaction per chunk.
+     * Each chunk looks its IDs up in run_id, then issues batched UPDATEs for runs that stay in their partition
+     * and batched INSERTs for new runs and runs moving to another month,
+     * which works the same on H2 and PostgreSQL without vendor-specific upsert syntax.
+     */
+    public List<BulkResult.Item> upsertAll(List<Run> runs) {
+        partitions.ensure(runs.stream().map(Run::startedOn).toList());
+        List<BulkResult.Item> items = inChunks(runs, Run::id, this::upsertChunk);
+        adjustCachedCount((int) items.stream().filter(item -> item.status() == BulkResult.Status.CREATED).count());
+        return items;
+    }
+
+    /**
+     * Deletes runs by ID in chunks of runnerz.jdbc.batch-size, one batched DELETE and transaction per chunk.
+     */
+    public List<BulkResult.Item> deleteAll(List<Integer> ids) {
+        List<BulkResult.Item> items = inChunks(ids, Function.identity(), this::deleteChunk);
+        adjustCachedCount(-(int) items.stream().filter(item -> item.status() == BulkResult.Status.DELETED).count());
+        return items;
+    }
+
+    /**
+     * Deletes runs by ID and row version in chunks of runnerz.jdbc.batch-size, one batched DELETE and transaction
+     * per chunk. A run whose version has moved on since it was read is left in place and reported as CONFLICT.
+     */
+    public List<BulkResult.Item> deleteAllUnchanged(Map<Integer, Long> versions) {
+        List<BulkResult.Item> items = inChunks(new ArrayList<>(versions.entrySet()), Map.Entry::getKey, this::deleteUnchangedChunk);
+        adjustCachedCount(-(int) items.stream().filter(item -> item.status() == BulkResult.Status.DELETED).count());
+        return items;
+    }
+
+    /**
+     * Applies a writer to consecutive chunks, each in its own transaction (or savepoint, as in saveAll()).
+     * A chunk that fails is rolled back and all of its items are reported as FAILED.
+     */
+    private <T> List<BulkResult.Item> inChunks(List<T> items, Function<T, Integer> idOf, Function<List<T>, List<BulkResult.Item>> writer) {
+        boolean joined = TransactionSynchronizationManager.isActualTransactionActive();
+        boolean written = false;
+        List<BulkResult.Item> results = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += batchSize) {
+            List<T> slice = items.subList(from, Math.min(from + batchSize, items.size()));
+            try {
+                results.addAll(writeChunk(joined, () -> writer.apply(slice)));
+                written = true;
+            } catch (DataAccessException | IllegalStateException e) {
+                String reason = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                log.warn("Failed to write runs {}..{}: {}", from, from + slice.size() - 1, reason);
+                slice.forEach(item -> results.add(new BulkResult.Item(idOf.apply(item), BulkResult.Status.FAILED, reason)));
+            }
+        }
+        if (joined && written) {
+            advanceVersion();
+        }
+        return results;
+    }
+
+    /**
+     * Writes one chunk in its own transaction, advancing the table version with it, or, when joining the caller's
+     * transaction, under a savepoint without advancing it: the caller then advances it once after the last chunk,
+     * so the version lock is not taken with the first chunk and the version moves once per commit.
+     */
+    private <R> R writeChunk(boolean joined, Supplier<R> writer) {
+        return chunkTransactionTemplate.execute(status -> {
+            R result = writer.get();
+            if (!joined) {
+                advanceVersion();
+            }
+            return result;
+        });
+    }
+
+    private List<BulkResult.Item> upsertChunk(List<Run> runs) {
+        Map<Integer, YearMonth> located = locate(runs.stream().map(Run::id).toList());
+
+        List<BulkResult.Item> items = new ArrayList<>(runs.size());
+        List<Run> existing = new ArrayList<>();
+        List<Run> missing = new ArrayList<>();
+        for (Run run : runs) {
+            if (located.containsKey(run.id())) {
+                existing.add(run);
+                items.add(BulkResult.Item.of(run.id(), BulkResult.Status.UPDATED));
+            } else {
+                missing.add(run);
+                items.add(BulkResult.Item.of(run.id(), BulkResult.Status.CREATED));
+            }
+        }
+        replaceRows(existing, located);
+        if (!missing.isEmpty()) {
+            insertRows(missing);
+        }
+        return items;
+    }
+
+    private List<BulkResult.Item> deleteChunk(List<Integer> ids) {
+        Map<Integer, YearMonth> located = locate(ids);
+        deleteRows(located);
+
+        Set<Integer> deleted = new HashSet<>(located.keySet());
+        List<BulkResult.Item> items = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            items.add(BulkResult.Item.of(id, deleted.remove(id) ? BulkResult.Status.DELETED : BulkResult.Status.NOT_FOUND));
+        }
+        return items;
+    }
+
+    private List<BulkResult.Item> deleteUnchangedChunk(List<Map.Entry<Integer, Long>> versions) {
+        Map<Integer, YearMonth> located = locate(versions.stream().map(Map.Entry::getKey).toList());
+        List<Map.Entry<Integer, Long>> found = versions.stream().filter(entry -> located.containsKey(entry.getKey())).toList();
+
+        Set<Integer> deleted = new HashSet<>();
+        byPartition(found, entry -> located.get(entry.getKey())).forEach((table, entries) -> {
+            int[] counts = rowCounts(jdbcTemplate.batchUpdate("DELETE FROM " + table + " WHERE id = ? AND version = ?", entries, entries.size(),
+                    (ps, entry) -> {
+                        ps.setObject(1, entry.getKey());
+                        ps.setLong(2, entry.getValue());
+                    }));
+            for (int i = 0; i < entries.size(); i++) {
+                if (counts[i] != 0) {
+                    deleted.add(entries.get(i).getKey());
+                }
+            }
+        });
+        deleteIds(deleted);
+
+        List<BulkResult.Item> items = new ArrayList<>(versions.size());
+        for (Map.Entry<Integer, Long> entry : versions) {
+            items.add(BulkResult.Item.of(entry.getKey(), deleted.remove(entry.getKey()) ? BulkResult.Status.DELETED : BulkResult.Status.CONFLICT));
+        }
+        return items;
+    }
+
+    /**
+     * Locks the run_id rows of the given IDs and returns the months of the partitions holding those runs.
+     * IDs without a run are left out.
+     */
+    private Map<Integer, YearMonth> locate(List<Integer> ids) {
+        Map<Integer, YearMonth> located = new HashMap<>();
+        jdbcClient.sql("SELECT id, first_day FROM run_id WHERE id IN (:ids) FOR UPDATE")
+                .param("ids", ids)
+                .query((RowCallbackHandler) rs -> located.put(rs.getInt(1), YearMonth.from(rs.getObject(2, LocalDate.class))));
+        return located;
+    }
+
+    /**
+     * Inserts runs into the partitions of their months, one JDBC batch per partition, each with a new row version,
+     * after recording their IDs in run_id as one batch, which fails on an ID in use in any partition.
+     * Asserts that every statement affected exactly one row; drivers that report
+     * Statement.SUCCESS_NO_INFO for batched statements are counted as successful.
+     */
+    private int insertRows(List<Run> runs) {
+        jdbcTemplate.batchUpdate("INSERT INTO run_id (id, first_day) VALUES (?, ?)", runs, runs.size(), (ps, run) -> {
+            ps.setObject(1, run.id());
+            ps.setObject(2, run.startedOn().toLocalDate().withDayOfMonth(1));
+        });
+
+        int inserted = 0;
+        for (var partition : byPartition(runs, run -> YearMonth.from(run.startedOn())).entrySet()) {
+            List<Run> rows = partition.getValue();
+            int[] counts = rowCounts(jdbcTemplate.batchUpdate("INSERT INTO " + partition.getKey()
+                    + " (id, title, started_on, completed_on, miles, location, duration_seconds, pace, version)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, nextval('run_version_seq'))", rows, rows.size(), (ps, run) -> {
+                ps.setObject(1, run.id());
+                ps.setString(2, run.title());
+                ps.setObject(3, run.startedOn());
+                ps.setObject(4, run.completedOn());
+                ps.setObject(5, run.miles());
+                ps.setInt(6, run.location().ordinal());
+                ps.setLong(7, run.getDuration().toSeconds());
+                ps.setDouble(8, run.pace());
+            }));
+            for (int count : counts) {
+                if (count == 1 || count == Statement.SUCCESS_NO_INFO) {
+                    inserted++;
+                }
+            }
+        }
+
+        Assert.state(inserted == runs.size(), "Failed to create " + (runs.size() - inserted) + " of " + runs.size() + " runs");
+        return inserted;
+    }
+
+    /**
+     * Rewrites runs that exist in the given partitions, with new row versions: in place, one batched UPDATE
+     * per partition, if they stay in their month, or else deleted and inserted into the partition of their new month.
+     */
+    private void replaceRows(List<Run> runs, Map<Integer, YearMonth> located) {
+        List<Run> moving = runs.stream().filter(run -> !located.get(run.id()).equals(YearMonth.from(run.startedOn()))).toList();
+        List<Run> staying = runs.stream().filter(run -> located.get(run.id()).equals(YearMonth.from(run.startedOn()))).toList();
+
+        byPartition(staying, run -> YearMonth.from(run.startedOn())).forEach((table, rows) ->
+                jdbcTemplate.batchUpdate("UPDATE " + table + " SET title = ?, started_on = ?, completed_on = ?, miles = ?, location = ?,"
+                        + " duration_seconds = ?, pace = ?, version = nextval('run_version_seq') WHERE id = ?", rows, rows.size(), (ps, run) -> {
+                    ps.setString(1, run.title());
+                    ps.setObject(2, run.startedOn());
+                    ps.setObject(3, run.completedOn());
+                    ps.setObject(4, run.miles());
+                    ps.setInt(5, run.location().ordinal());
+                    ps.setLong(6, run.getDuration().toSeconds());
+                    ps.setDouble(7, run.pace());
+                    ps.setObject(8, run.id());
+                }));
+
+        if (!moving.isEmpty()) {
+            Map<Integer, YearMonth> from = new HashMap<>();
+            moving.forEach(run -> from.put(run.id(), located.get(run.id())));
+            deleteRows(from);
+            insertRows(moving);
+        }
+    }
+
+    /**
+     * Deletes runs from the given partitions, one batched DELETE per partition, and their IDs from run_id.
+     */
+    private void deleteRows(Map<Integer, YearMonth> located) {
+        byPartition(located.keySet(), located::get).forEach((table, ids) ->
+                jdbcTemplate.batchUpdate("DELETE FROM " + table + " WHERE id = ?", ids, ids.size(), (ps, id) -> ps.setObject(1, id)));
+        deleteIds(located.keySet());
+    }
+
+    private void deleteIds(Collection<Integer> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM run_id WHERE id = ?", ids, ids.size(), (ps, id) -> ps.setObject(1, id));
+        }
+    }
+
+    /**
+     * Groups items by the partition table of their month, keeping their order within each partition.
+     */
+    private static <T> Map<String, List<T>> byPartition(Collection<T> items, Function<T, YearMonth> monthOf) {
+        return items.stream().collect(Collectors.groupingBy(item -> RunPartitions.table(monthOf.apply(item)), LinkedHashMap::new, Collectors.toList()));
     }
 
     /**
-     * Saves a list of runs by calling create() on each.
+     * Flattens the per-batch update counts returned by JdbcTemplate into one count per statement.
      */
-    public void saveAll(List<Run> runs) {
-        runs.forEach(this::create);
+    private static int[] rowCounts(int[][] counts) {
+        return Arrays.stream(counts).flatMapToInt(Arrays::stream).toArray();
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,9 @@ package devdarvegga.runnerz.run;
  * Enum representing the possible locations for a run.
  * Used to categorize runs as either indoors (e.g., treadmill, gym)
  * or outdoors (e.g., park, street).
+ *
+ * Persisted by ordinal in the run.location SMALLINT column, so new constants
+ * must only ever be appended.
  */
 public enum Location {
     INDOOR,  // Run took place in an indoor setting
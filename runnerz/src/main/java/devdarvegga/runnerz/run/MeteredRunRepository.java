@@ -0,0 +1,243 @@
+package devdarvegga.runnerz.run;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * RunRepository decorator that records Micrometer metrics for every call to the wrapped repository.
+ *
+ * - runnerz.repository (timer, with histogram): latency per method, tagged with the exception thrown or "none".
+ *   For JdbcRunRepository this covers the SQL and the row mapping.
+ * - runnerz.repository.rows (summary): runs returned by reads, or runs/IDs passed to bulk writes.
+ * - runnerz.repository.assertion.failures (counter): IllegalStateExceptions, i.e. failed Assert.state checks
+ *   such as an update or delete that matched no row.
+ *
+ * All meters are tagged with the method name and the implementation (the wrapped class name).
+ */
+public class MeteredRunRepository extends ForwardingRunRepository {
+
+    private final MeterRegistry registry;
+    private final String implementation;
+
+    /**
+     * Wraps the given repository; implementation is the tag value identifying it (e.g. "JdbcRunRepository").
+     */
+    public MeteredRunRepository(RunRepository delegate, MeterRegistry registry, String implementation) {
+        super(delegate);
+        this.registry = registry;
+        this.implementation = implementation;
+    }
+
+    @Override
+    public List<Run> findAll() {
+        return rows("findAll", record("findAll", delegate::findAll));
+    }
+
+    @Override
+    public List<Run> findAll(Integer after, int limit) {
+        return rows("findAllPage", record("findAllPage", () -> delegate.findAll(after, limit)));
+    }
+
+    @Override
+    public void streamAll(Consumer<Run> action) {
+        long[] rows = new long[1];
+        record("streamAll", () -> {
+            delegate.streamAll(run -> {
+                rows[0]++;
+                action.accept(run);
+            });
+            return null;
+        });
+        rowSummary("streamAll").record(rows[0]);
+    }
+
+    @Override
+    public void streamAll(LocalDateTime from, LocalDateTime to, Consumer<Run> action) {
+        long[] rows = new long[1];
+        record("streamRange", () -> {
+            delegate.streamAll(from, to, run -> {
+                rows[0]++;
+                action.accept(run);
+            });
+            return null;
+        });
+        rowSummary("streamRange").record(rows[0]);
+    }
+
+    @Override
+    public void streamColumns(LocalDateTime from, LocalDateTime to, Consumer<RunColumns> action) {
+        long[] rows = new long[1];
+        record("streamColumns", () -> {
+            delegate.streamColumns(from, to, batch -> {
+                rows[0] += batch.size();
+                action.accept(batch);
+            });
+            return null;
+        });
+        rowSummary("streamColumns").record(rows[0]);
+    }
+
+    @Override
+    public void streamVersioned(LocalDateTime from, LocalDateTime to, Consumer<VersionedRun> action) {
+        long[] rows = new long[1];
+        record("streamVersioned", () -> {
+            delegate.streamVersioned(from, to, run -> {
+                rows[0]++;
+                action.accept(run);
+            });
+            return null;
+        });
+        rowSummary("streamVersioned").record(rows[0]);
+    }
+
+    @Override
+    public Optional<Run> findById(Integer id) {
+        Optional<Run> run = record("findById", () -> delegate.findById(id));
+        rowSummary("findById").record(run.isPresent() ? 1 : 0);
+        return run;
+    }
+
+    @Override
+    public List<Run> findAllById(List<Integer> ids) {
+        return rows("findAllById", record("findAllById", () -> delegate.findAllById(ids)));
+    }
+
+    @Override
+    public Optional<VersionedRun> findVersionedById(Integer id) {
+        Optional<VersionedRun> run = record("findVersionedById", () -> delegate.findVersionedById(id));
+        rowSummary("findVersionedById").record(run.isPresent() ? 1 : 0);
+        return run;
+    }
+
+    @Override
+    public long version() {
+        return record("version", delegate::version);
+    }
+
+    @Override
+    public void create(Run run) {
+        record("create", () -> {
+            delegate.create(run);
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Run run, Integer id) {
+        record("update", () -> {
+            delegate.update(run, id);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(Integer id) {
+        record("delete", () -> {
+            delegate.delete(id);
+            return null;
+        });
+    }
+
+    @Override
+    public int count() {
+        return record("count", delegate::count);
+    }
+
+    @Override
+    public int approximateCount() {
+        return record("approximateCount", delegate::approximateCount);
+    }
+
+    @Override
+    public BatchResult saveAll(List<Run> runs) {
+        rowSummary("saveAll").record(runs.size());
+        return record("saveAll", () -> delegate.saveAll(runs));
+    }
+
+    @Override
+    public List<BulkResult.Item> upsertAll(List<Run> runs) {
+        rowSummary("upsertAll").record(runs.size());
+        return record("upsertAll", () -> delegate.upsertAll(runs));
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAll(List<Integer> ids) {
+        rowSummary("deleteAll").record(ids.size());
+        return record("deleteAll", () -> delegate.deleteAll(ids));
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAllUnchanged(Map<Integer, Long> versions) {
+        rowSummary("deleteAllUnchanged").record(versions.size());
+        return record("deleteAllUnchanged", () -> delegate.deleteAllUnchanged(versions));
+    }
+
+    @Override
+    public List<Run> findByLocation(String location) {
+        return rows("findByLocation", record("findByLocation", () -> delegate.findByLocation(location)));
+    }
+
+    @Override
+    public List<Run> findByLocation(Location location, LocalDateTime from, LocalDateTime to) {
+        return rows("findByLocationRange", record("findByLocationRange", () -> delegate.findByLocation(location, from, to)));
+    }
+
+    @Override
+    public List<Run> findByPace(Double minPace, Double maxPace, int limit) {
+        return rows("findByPace", record("findByPace", () -> delegate.findByPace(minPace, maxPace, limit)));
+    }
+
+    @Override
+    public List<RunStats> findStats(boolean byLocation, RunStats.Period period, LocalDateTime from, LocalDateTime to) {
+        return record("findStats", () -> delegate.findStats(byLocation, period, from, to));
+    }
+
+    /**
+     * Times one call, tagging the timer with the exception type if it throws.
+     */
+    private <T> T record(String method, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            exception = e.getClass().getSimpleName();
+            if (e instanceof IllegalStateException) {
+                Counter.builder("runnerz.repository.assertion.failures")
+                        .description("Failed Assert.state checks in RunRepository")
+                        .tags("method", method, "implementation", implementation)
+                        .register(registry)
+                        .increment();
+            }
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("runnerz.repository")
+                    .description("RunRepository call latency")
+                    .tags("method", method, "implementation", implementation, "exception", exception)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    private <T> List<T> rows(String method, List<T> result) {
+        rowSummary(method).record(result.size());
+        return result;
+    }
+
+    private DistributionSummary rowSummary(String method) {
+        return DistributionSummary.builder("runnerz.repository.rows")
+                .description("Runs returned by reads or passed to bulk writes")
+                .baseUnit("rows")
+                .tags("method", method, "implementation", implementation)
+                .register(registry);
+    }
+}
@@ -0,0 +1,81 @@
+package devdarvegga.runnerz.run;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RunRepository decorator that appends every write to the wrapped repository to the RunChangeLog.
+ *
+ * Changes are appended after the delegate returns, and only for runs the delegate reports as written:
+ * runs in failed saveAll() chunks and FAILED/NOT_FOUND bulk items are not recorded.
+ * Wraps the other write decorators, so caches have been invalidated by the time a consumer sees a change.
+ */
+public class PublishingRunRepository extends ForwardingRunRepository {
+
+    private final RunChangeLog changeLog;
+
+    public PublishingRunRepository(RunRepository delegate, RunChangeLog changeLog) {
+        super(delegate);
+        this.changeLog = changeLog;
+    }
+
+    @Override
+    public void create(Run run) {
+        delegate.create(run);
+        changeLog.append(RunChange.Type.CREATED, run.id(), run);
+    }
+
+    @Override
+    public void update(Run run, Integer id) {
+        delegate.update(run, id);
+        changeLog.append(RunChange.Type.UPDATED, id, new Run(id, run.title(), run.startedOn(), run.completedOn(), run.miles(), run.location()));
+    }
+
+    @Override
+    public void delete(Integer id) {
+        delegate.delete(id);
+        changeLog.append(RunChange.Type.DELETED, id, null);
+    }
+
+    @Override
+    public BatchResult saveAll(List<Run> runs) {
+        BatchResult result = delegate.saveAll(runs);
+        for (Run run : result.savedRuns(runs)) {
+            changeLog.append(RunChange.Type.CREATED, run.id(), run);
+        }
+        return result;
+    }
+
+    @Override
+    public List<BulkResult.Item> upsertAll(List<Run> runs) {
+        List<BulkResult.Item> items = delegate.upsertAll(runs);
+        for (int i = 0; i < items.size(); i++) {
+            switch (items.get(i).status()) {
+                case CREATED -> changeLog.append(RunChange.Type.CREATED, runs.get(i).id(), runs.get(i));
+                case UPDATED -> changeLog.append(RunChange.Type.UPDATED, runs.get(i).id(), runs.get(i));
+                default -> {
+                }
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAll(List<Integer> ids) {
+        return publishDeleted(delegate.deleteAll(ids));
+    }
+
+    @Override
+    public List<BulkResult.Item> deleteAllUnchanged(Map<Integer, Long> versions) {
+        return publishDeleted(delegate.deleteAllUnchanged(versions));
+    }
+
+    private List<BulkResult.Item> publishDeleted(List<BulkResult.Item> items) {
+        for (BulkResult.Item item : items) {
+            if (item.status() == BulkResult.Status.DELETED) {
+                changeLog.append(RunChange.Type.DELETED, item.id(), null);
+            }
+        }
+        return items;
+    }
+}
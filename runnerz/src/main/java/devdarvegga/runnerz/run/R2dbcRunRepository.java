@@ -0,0 +1,285 @@
+package devdarvegga.runnerz.run;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * R2DBC-backed implementation of ReactiveRunRepository, on the same 'run' and 'run_version' tables as
+ * JdbcRunRepository and with the same queries and indexes, so both variants of the API can share a database.
+ * Writes go to the partition of the run's month and keep run_id in step, as in JdbcRunRepository (see RunPartitions).
+ * Reads select from run, which PostgreSQL prunes by start time and H2 does not.
+ * Only present in a reactive web application (the "reactive" profile).
+ *
+ * Writes advance the collection version in their own transaction, like JdbcRunRepository, and then update
+ * the RunTitleIndex so full-text search sees them. Created runs are published to subscribers of created().
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class R2dbcRunRepository implements ReactiveRunRepository {
+
+    private static final String SELECT_COLUMNS = "SELECT id, title, started_on, completed_on, miles, location FROM run";
+
+    private static final String INSERT_COLUMNS = " (id, title, started_on, completed_on, miles, location, duration_seconds, pace, version)"
+            + " VALUES (:id, :title, :startedOn, :completedOn, :miles, :location, :durationSeconds, :pace, nextval('run_version_seq'))";
+
+    private static final String UPDATE_COLUMNS = " SET title = :title, started_on = :startedOn, completed_on = :completedOn, miles = :miles,"
+            + " location = :location, duration_seconds = :durationSeconds, pace = :pace, version = nextval('run_version_seq') WHERE id = :id";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final RunTitleIndex titleIndex;
+    private final Sinks.Many<Run> created = Sinks.many().multicast().directBestEffort();
+
+    /**
+     * Constructor injection of the R2DBC client, the reactive transaction operator and the title index.
+     */
+    public R2dbcRunRepository(DatabaseClient databaseClient, TransactionalOperator transactionalOperator, RunTitleIndex titleIndex) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.titleIndex = titleIndex;
+    }
+
+    @Override
+    public Flux<Run> findAll() {
+        return databaseClient.sql(SELECT_COLUMNS + " ORDER BY id")
+                .map(R2dbcRunRepository::run)
+                .all();
+    }
+
+    /**
+     * Seeks past the given ID on the primary key index of run_id, as JdbcRunRepository does.
+     */
+    @Override
+    public Flux<Run> findAll(Integer after, int limit) {
+        return databaseClient.sql(SELECT_COLUMNS + " WHERE id IN (SELECT id FROM run_id WHERE id > :after ORDER BY id LIMIT :limit) ORDER BY id")
+                .bind("after", after == null ? Integer.MIN_VALUE : after)
+                .bind("limit", limit)
+                .map(R2dbcRunRepository::run)
+                .all();
+    }
+
+    @Override
+    public Mono<Run> findById(Integer id) {
+        return databaseClient.sql(SELECT_COLUMNS + " WHERE id = :id")
+                .bind("id", id)
+                .map(R2dbcRunRepository::run)
+                .one();
+    }
+
+    @Override
+    public Flux<Run> findAllById(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql(SELECT_COLUMNS + " WHERE id IN (:ids)")
+                .bind("ids", ids)
+                .map(R2dbcRunRepository::run)
+                .all();
+    }
+
+    @Override
+    public Mono<VersionedRun> findVersionedById(Integer id) {
+        return databaseClient.sql("SELECT id, title, started_on, completed_on, miles, location, version FROM run WHERE id = :id")
+                .bind("id", id)
+                .map(row -> new VersionedRun(run(row), row.get("version", Long.class)))
+                .one();
+    }
+
+    @Override
+    public Mono<Long> version() {
+        return databaseClient.sql("SELECT version FROM run_version")
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    /**
+     * Increments the table version; must be the last statement of the transaction of the write it versions,
+     * as in JdbcRunRepository.
+     */
+    private Mono<Void> advanceVersion() {
+        return databaseClient.sql("UPDATE run_version SET version = version + 1")
+                .fetch()
+                .rowsUpdated()
+                .then();
+    }
+
+    @Override
+    public Mono<Void> create(Run run) {
+        return partition(run.startedOn())
+                .flatMap(table -> insert(table, run, run.id())
+                        .then(advanceVersion())
+                        .as(transactionalOperator::transactional))
+                .then(Mono.fromRunnable(() -> {
+                    titleIndex.put(run);
+                    publish(run);
+                }));
+    }
+
+    /**
+     * Updates the run in place if it stays in its month, or else moves it to the partition of its new month.
+     */
+    @Override
+    public Mono<Void> update(Run run, Integer id) {
+        return partition(run.startedOn())
+                .flatMap(table -> locate(id)
+                        .switchIfEmpty(Mono.error(new RunNotFoundException()))
+                        .flatMap(month -> month.equals(YearMonth.from(run.startedOn()))
+                                ? bindRun(databaseClient.sql("UPDATE " + table + UPDATE_COLUMNS), run, id).fetch().rowsUpdated().then()
+                                : deleteRow(id, month).then(insert(table, run, id)))
+                        .then(advanceVersion())
+                        .as(transactionalOperator::transactional))
+                .then(Mono.fromRunnable(() ->
+                        titleIndex.put(new Run(id, run.title(), run.startedOn(), run.completedOn(), run.miles(), run.location()))));
+    }
+
+    @Override
+    public Mono<Void> delete(Integer id) {
+        return locate(id)
+                .switchIfEmpty(Mono.error(new RunNotFoundException()))
+                .flatMap(month -> deleteRow(id, month))
+                .then(advanceVersion())
+                .as(transactionalOperator::transactional)
+                .then(Mono.fromRunnable(() -> titleIndex.remove(id)));
+    }
+
+    /**
+     * Creates the partition for runs started at the given time, unless it exists, and returns its table.
+     * Called outside the write transaction, since H2 commits the open transaction on DDL.
+     */
+    private Mono<String> partition(LocalDateTime startedOn) {
+        return databaseClient.sql("SELECT create_run_partition(:month)")
+                .bind("month", startedOn.toLocalDate().withDayOfMonth(1))
+                .map(row -> row.get(0, String.class))
+                .one();
+    }
+
+    /**
+     * Locks the run_id row of the given ID and returns the month of the partition holding the run.
+     */
+    private Mono<YearMonth> locate(Integer id) {
+        return databaseClient.sql("SELECT first_day FROM run_id WHERE id = :id FOR UPDATE")
+                .bind("id", id)
+                .map(row -> YearMonth.from(row.get("first_day", LocalDate.class)))
+                .one();
+    }
+
+    /**
+     * Records the ID in run_id, which fails if it is in use in any partition, and inserts the run into the given partition.
+     */
+    private Mono<Void> insert(String table, Run run, Integer id) {
+        return databaseClient.sql("INSERT INTO run_id (id, first_day) VALUES (:id, :month)")
+                .bind("id", id)
+                .bind("month", run.startedOn().toLocalDate().withDayOfMonth(1))
+                .fetch()
+                .rowsUpdated()
+                .then(bindRun(databaseClient.sql("INSERT INTO " + table + INSERT_COLUMNS), run, id).fetch().rowsUpdated())
+                .flatMap(updated -> updated == 1 ? Mono.<Void>empty() : Mono.error(new IllegalStateException("Failed to create run " + run.title())));
+    }
+
+    private Mono<Void> deleteRow(Integer id, YearMonth month) {
+        return databaseClient.sql("DELETE FROM " + RunPartitions.table(month) + " WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .then(databaseClient.sql("DELETE FROM run_id WHERE id = :id").bind("id", id).fetch().rowsUpdated())
+                .then();
+    }
+
+    /**
+     * Served by the (location, started_on) index, as in JdbcRunRepository.
+     */
+    @Override
+    public Flux<Run> findByLocation(Location location, LocalDateTime from, LocalDateTime to) {
+        var sql = new StringBuilder(SELECT_COLUMNS).append(" WHERE location = :location");
+        if (from != null) {
+            sql.append(" AND started_on >= :from");
+        }
+        if (to != null) {
+            sql.append(" AND started_on < :to");
+        }
+        sql.append(" ORDER BY started_on, id");
+
+        var statement = databaseClient.sql(sql.toString()).bind("location", location.ordinal());
+        if (from != null) {
+            statement = statement.bind("from", from);
+        }
+        if (to != null) {
+            statement = statement.bind("to", to);
+        }
+        return statement.map(R2dbcRunRepository::run).all();
+    }
+
+    /**
+     * Served by the (pace, id) index, as in JdbcRunRepository.
+     */
+    @Override
+    public Flux<Run> findByPace(Double minPace, Double maxPace, int limit) {
+        var sql = new StringBuilder(SELECT_COLUMNS);
+        List<String> conditions = new ArrayList<>();
+        if (minPace != null) {
+            conditions.add("pace >= :minPace");
+        }
+        if (maxPace != null) {
+            conditions.add("pace <= :maxPace");
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY pace, id LIMIT :limit");
+
+        var statement = databaseClient.sql(sql.toString()).bind("limit", limit);
+        if (minPace != null) {
+            statement = statement.bind("minPace", minPace);
+        }
+        if (maxPace != null) {
+            statement = statement.bind("maxPace", maxPace);
+        }
+        return statement.map(R2dbcRunRepository::run).all();
+    }
+
+    @Override
+    public Flux<Run> created() {
+        return created.asFlux();
+    }
+
+    /**
+     * Emits to the current subscribers of created(). Synchronized because the sink only accepts one emitter at a time.
+     */
+    private synchronized void publish(Run run) {
+        created.tryEmitNext(run);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindRun(DatabaseClient.GenericExecuteSpec statement, Run run, Integer id) {
+        return statement
+                .bind("id", id)
+                .bind("title", run.title())
+                .bind("startedOn", run.startedOn())
+                .bind("completedOn", run.completedOn())
+                .bind("miles", run.miles())
+                .bind("location", run.location().ordinal())
+                .bind("durationSeconds", run.getDuration().toSeconds())
+                .bind("pace", run.pace());
+    }
+
+    private static Run run(Readable row) {
+        return new Run(
+                row.get("id", Integer.class),
+                row.get("title", String.class),
+                row.get("started_on", LocalDateTime.class),
+                row.get("completed_on", LocalDateTime.class),
+                row.get("miles", Integer.class),
+                Location.values()[row.get("location", Short.class)]);
+    }
+}
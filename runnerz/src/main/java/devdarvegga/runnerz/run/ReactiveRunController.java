@@ -0,0 +1,266 @@
+package devdarvegga.runnerz.run;
+
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.reactive.accept.RequestedContentTypeResolver;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static devdarvegga.runnerz.run.RunController.APPLICATION_NDJSON_VALUE;
+import static devdarvegga.runnerz.run.RunController.MAX_PAGE_SIZE;
+import static devdarvegga.runnerz.run.RunController.MAX_SEARCH_RESULTS;
+import static devdarvegga.runnerz.run.RunController.MAX_SEARCH_WINDOW;
+
+/**
+ * Non-blocking variant of RunController for the reactive (WebFlux on Netty) application, started with the
+ * "reactive" profile. Mirrors RunController's read endpoints, single-run writes and their status codes and ETags,
+ * over ReactiveRunRepository, so no request ever holds a thread while waiting on the database.
+ * Bulk writes and statistics are only served by RunController.
+ *
+ * GET /api/runs/events additionally streams runs created through this API as server-sent events.
+ */
+@RestController
+@RequestMapping("/api/runs")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+class ReactiveRunController {
+
+    // Comment lines sent on idle event streams, so proxies do not time out the connection
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    private final ReactiveRunRepository runRepository;
+    private final RunTitleIndex titleIndex;
+    private final RequestedContentTypeResolver contentTypeResolver;
+
+    /**
+     * Constructor injection of the reactive repository, the title index and WebFlux's content type resolver,
+     * which tells the format of a response for its ETag.
+     */
+    ReactiveRunController(ReactiveRunRepository runRepository, RunTitleIndex titleIndex,
+                          RequestedContentTypeResolver webFluxContentTypeResolver) {
+        this.runRepository = runRepository;
+        this.titleIndex = titleIndex;
+        this.contentTypeResolver = webFluxContentTypeResolver;
+    }
+
+    /**
+     * GET /api/runs
+     * GET /api/runs?after=10&limit=50
+     * Returns all runs (streamed as a JSON array), or one page of runs ordered by ID when after or limit is given.
+     * Paged responses carry a Link header (rel="next") while more runs may follow.
+     * Answers 304 Not Modified without querying runs when If-None-Match matches the collection ETag.
+     */
+    @GetMapping
+    Mono<ResponseEntity<Flux<Run>>> findAll(@RequestParam(required = false) Integer after,
+                                            @RequestParam(required = false) Integer limit,
+                                            ServerWebExchange exchange) {
+        int pageSize = limit == null ? MAX_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE + "."));
+        }
+        if (after == null && limit == null) {
+            return collection(exchange, runRepository::findAll);
+        }
+        return ifModified(exchange, () -> runRepository.findAll(after, pageSize).collectList().map(page -> {
+            var response = ResponseEntity.ok();
+            if (page.size() == pageSize) {
+                String next = UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                        .replaceQueryParam("after", page.get(page.size() - 1).id())
+                        .replaceQueryParam("limit", pageSize)
+                        .toUriString();
+                response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+            }
+            return response.body(Flux.fromIterable(page));
+        }));
+    }
+
+    /**
+     * GET /api/runs with Accept: application/x-ndjson
+     * Streams every run as newline-delimited JSON, with backpressure from the client down to the database.
+     */
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    Flux<Run> streamAll() {
+        return runRepository.findAll();
+    }
+
+    /**
+     * GET /api/runs/events
+     * Streams runs created through this API from now on as server-sent events (event "created", id = run ID),
+     * with a heartbeat comment right away (so the response starts before the first run) and every 15 seconds after.
+     * Clients that fall behind miss events rather than slowing writers.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    Flux<ServerSentEvent<Run>> events() {
+        Flux<ServerSentEvent<Run>> created = runRepository.created()
+                .map(run -> ServerSentEvent.builder(run).id(String.valueOf(run.id())).event("created").build());
+        Flux<ServerSentEvent<Run>> heartbeats = Flux.interval(Duration.ZERO, HEARTBEAT_INTERVAL)
+                .map(tick -> ServerSentEvent.<Run>builder().comment("heartbeat").build());
+        return Flux.merge(created, heartbeats);
+    }
+
+    /**
+     * GET /api/runs/{id}
+     * Returns a single run by ID, with its row version (and format) as a strong ETag.
+     * Answers 304 Not Modified when If-None-Match matches, and 404 if not found.
+     */
+    @GetMapping("/{id}")
+    Mono<Run> findById(@PathVariable Integer id, ServerWebExchange exchange) {
+        return runRepository.findVersionedById(id)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Run not found.")))
+                .flatMap(run -> exchange.checkNotModified(RunController.eTag(run.version(), format(exchange))) ? Mono.empty() : Mono.just(run.run()));
+    }
+
+    /**
+     * POST /api/runs
+     * Creates a new run.
+     * Validates input and returns 201 Created.
+     */
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping
+    Mono<Void> create(@Valid @RequestBody Run run) {
+        return runRepository.create(run);
+    }
+
+    /**
+     * PUT /api/runs/{id}
+     * Updates an existing run by ID.
+     * Validates input and returns 204 No Content, or 404 if the run does not exist.
+     */
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @PutMapping("/{id}")
+    Mono<Void> update(@Valid @RequestBody Run run, @PathVariable Integer id) {
+        return runRepository.update(run, id);
+    }
+
+    /**
+     * DELETE /api/runs/{id}
+     * Deletes a run by ID.
+     * Returns 204 No Content, or 404 if the run does not exist.
+     */
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @DeleteMapping("/{id}")
+    Mono<Void> delete(@PathVariable Integer id) {
+        return runRepository.delete(id);
+    }
+
+    /**
+     * GET /api/runs/search?location=INDOOR
+     * GET /api/runs/search?location=INDOOR&from=2024-02-01T00:00&to=2024-03-01T00:00
+     * Returns runs filtered by location, optionally limited to runs started within [from, to).
+     * Answers 304 Not Modified when If-None-Match matches the collection ETag.
+     */
+    @GetMapping(value = "/search", params = "location")
+    Mono<ResponseEntity<Flux<Run>>> findByLocation(@RequestParam Location location,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                   ServerWebExchange exchange) {
+        return collection(exchange, () -> runRepository.findByLocation(location, from, to));
+    }
+
+    /**
+     * GET /api/runs/search?q=morning+run
+     * GET /api/runs/search?q=morning+run&offset=20&limit=20
+     * Full-text search over run titles, answered from the in-memory title index, up to the first 10,000 hits
+     * as in RunController. Scoring is CPU-bound, so it runs on the bounded elastic scheduler, off the event loop.
+     */
+    @GetMapping(value = "/search", params = "q")
+    Mono<RunSearchResult> search(@RequestParam String q,
+                                 @RequestParam(defaultValue = "0") int offset,
+                                 @RequestParam(defaultValue = "20") int limit) {
+        if (offset < 0 || limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "offset must not be negative and limit must be between 1 and " + MAX_SEARCH_RESULTS + "."));
+        }
+        // The index keeps the top offset + limit hits while scoring, so deep pages are refused
+        if (offset > MAX_SEARCH_WINDOW - limit) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "offset + limit must not exceed " + MAX_SEARCH_WINDOW + "."));
+        }
+        return Mono.fromCallable(() -> titleIndex.search(q, offset, limit))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(page -> runRepository.findAllById(page.hits().stream().map(RunTitleIndex.Hit::id).toList())
+                        .collectMap(Run::id, Function.identity())
+                        .map(runs -> new RunSearchResult(page.total(), page.hits().stream()
+                                // Runs deleted by another process since they were indexed are skipped
+                                .filter(hit -> runs.containsKey(hit.id()))
+                                .map(hit -> new RunSearchResult.Hit(runs.get(hit.id()), hit.score()))
+                                .toList())));
+    }
+
+    /**
+     * GET /api/runs/fastest?limit=10
+     * Returns the fastest runs by pace (minutes per mile).
+     * Answers 304 Not Modified when If-None-Match matches the collection ETag.
+     */
+    @GetMapping("/fastest")
+    Mono<ResponseEntity<Flux<Run>>> findFastest(@RequestParam(defaultValue = "10") int limit, ServerWebExchange exchange) {
+        return findByPace(null, null, limit, exchange);
+    }
+
+    /**
+     * GET /api/runs/pace?min=6.5&max=8&limit=100
+     * Returns runs with a pace within [min, max] minutes per mile, fastest first; either bound may be omitted.
+     * Answers 304 Not Modified when If-None-Match matches the collection ETag.
+     */
+    @GetMapping("/pace")
+    Mono<ResponseEntity<Flux<Run>>> findByPace(@RequestParam(required = false) Double min,
+                                               @RequestParam(required = false) Double max,
+                                               @RequestParam(defaultValue = "" + MAX_PAGE_SIZE) int limit,
+                                               ServerWebExchange exchange) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE + "."));
+        }
+        return collection(exchange, () -> runRepository.findByPace(min, max, limit));
+    }
+
+    /**
+     * Responds with runs derived from the whole collection under the collection ETag.
+     * The runs are only queried when the response is actually written.
+     */
+    private Mono<ResponseEntity<Flux<Run>>> collection(ServerWebExchange exchange, Supplier<Flux<Run>> runs) {
+        return ifModified(exchange, () -> Mono.just(ResponseEntity.ok(runs.get())));
+    }
+
+    /**
+     * Reads the collection version before the runs themselves, as RunController does, and completes empty
+     * (answering 304 Not Modified) when If-None-Match matches it.
+     */
+    private <T> Mono<T> ifModified(ServerWebExchange exchange, Supplier<Mono<T>> response) {
+        return runRepository.version()
+                .flatMap(version -> exchange.checkNotModified(RunController.weakETag(version, format(exchange))) ? Mono.empty() : response.get());
+    }
+
+    /**
+     * Picks the format a response will be written in from the Accept header, as RunController does.
+     */
+    private MediaType format(ServerWebExchange exchange) {
+        return RunController.format(contentTypeResolver.resolveMediaTypes(exchange));
+    }
+
+    /**
+     * Answers 503 with Retry-After when no connection could be taken from the R2DBC pool within
+     * spring.r2dbc.pool.max-acquire-time, mirroring RunController's handling of an exhausted JDBC pool.
+     */
+    @ExceptionHandler(DataAccessResourceFailureException.class)
+    ResponseEntity<Void> connectionPoolExhausted() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package devdarvegga.runnerz.run;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of RunRepository for the reactive variant of the API.
+ * Nothing happens until the returned publisher is subscribed to; collections are streamed with backpressure.
+ * Writes fail with RunNotFoundException when the run to update or delete does not exist.
+ */
+public interface ReactiveRunRepository {
+
+    /**
+     * Streams every run, ordered by ID.
+     * @return All runs.
+     */
+    Flux<Run> findAll();
+
+    /**
+     * Streams one page of runs ordered by ID (keyset pagination).
+     * @param after Only runs with an ID greater than this are returned; null starts from the beginning.
+     * @param limit Maximum number of runs to return.
+     * @return Up to limit runs, ordered by ID.
+     */
+    Flux<Run> findAll(Integer after, int limit);
+
+    /**
+     * Finds a run by its unique ID.
+     * @param id The run's identifier.
+     * @return The run, or empty if not found.
+     */
+    Mono<Run> findById(Integer id);
+
+    /**
+     * Finds runs by ID in one round trip.
+     * @param ids The IDs to look up.
+     * @return The runs that exist, in no particular order.
+     */
+    Flux<Run> findAllById(List<Integer> ids);
+
+    /**
+     * Finds a run by its unique ID together with its version (see RunRepository.findVersionedById).
+     * @param id The run's identifier.
+     * @return The run and its version, or empty if not found.
+     */
+    Mono<VersionedRun> findVersionedById(Integer id);
+
+    /**
+     * Returns the version of the run collection as a whole (see RunRepository.version).
+     * @return Current version of the run collection.
+     */
+    Mono<Long> version();
+
+    /**
+     * Creates a new run.
+     * @param run The run to create.
+     * @return Completes once the run is stored.
+     */
+    Mono<Void> create(Run run);
+
+    /**
+     * Updates an existing run.
+     * @param run The new state of the run.
+     * @param id The ID of the run to update.
+     * @return Completes once the run is stored.
+     */
+    Mono<Void> update(Run run, Integer id);
+
+    /**
+     * Deletes a run.
+     * @param id The ID of the run to delete.
+     * @return Completes once the run is deleted.
+     */
+    Mono<Void> delete(Integer id);
+
+    /**
+     * Streams runs at a location that started within [from, to), ordered by start time.
+     * @param location The location to match.
+     * @param from Earliest start time (inclusive), or null for no lower bound.
+     * @param to Latest start time (exclusive), or null for no upper bound.
+     * @return The matching runs.
+     */
+    Flux<Run> findByLocation(Location location, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Streams up to limit runs with a pace within [minPace, maxPace] minutes per mile, fastest first.
+     * @param minPace Lower bound (inclusive), or null for none.
+     * @param maxPace Upper bound (inclusive), or null for none.
+     * @param limit Maximum number of runs to return.
+     * @return The matching runs.
+     */
+    Flux<Run> findByPace(Double minPace, Double maxPace, int limit);
+
+    /**
+     * Live stream of runs created through this repository from the moment of subscription.
+     * Subscribers that cannot keep up miss runs rather than holding up writers or other subscribers.
+     * @return Newly created runs; never completes.
+     */
+    Flux<Run> created();
+}
@@ -1,6 +1,8 @@
 package devdarvegga.runnerz.run;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
 import java.time.Duration;
@@ -20,9 +22,11 @@ public record Run(
 
         LocalDateTime completedOn, // Timestamp when the run ended
 
+        @NotNull
         @Positive
         Integer miles, // Distance covered in miles (must be > 0)
 
+        @NotNull
         Location location // Enum indicating whether the run was indoor or outdoor
 ) {
 
@@ -51,4 +55,14 @@ public record Run(
     public Integer getAvgPace() {
         return Math.toIntExact(getDuration().toMinutes() / miles);
     }
+
+    /**
+     * Calculates the unrounded average pace in minutes per mile.
+     * Persisted alongside the run so runs can be filtered and sorted by pace in the database.
+     * @return Duration in minutes divided by miles.
+     */
+    @JsonIgnore
+    public double pace() {
+        return getDuration().toSeconds() / 60.0 / miles;
+    }
 }
\ No newline at end of file
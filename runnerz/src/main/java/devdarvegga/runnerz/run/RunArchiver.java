@@ -0,0 +1,170 @@
+package devdarvegga.runnerz.run;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves old runs out of the repository into compressed archive files, enabled with runnerz.archive.enabled=true.
+ *
+ * Runs are archived by calendar month of their start time: every whole month older than
+ * runnerz.archive.keep-months is written to runnerz.archive.directory as runs-YYYY-MM.ndjson.gz
+ * (one run per line, as served by GET /api/runs with Accept: application/x-ndjson) and then deleted.
+ * If a month was archived before, the new runs are added as another gzip member, which gzip
+ * and GZIPInputStream read as one stream.
+ *
+ * Each pass writes the whole new file (the old members followed by the new one) to a temporary file,
+ * forces it to disk and renames it over the old file, so a crash leaves either the old or the new file,
+ * never a truncated one. Only then are runs deleted, and only those still at the version that was written:
+ * runs created, updated or moved in an archived month while it is being archived stay in the repository
+ * until the next pass. A crash or a concurrent update can therefore archive a run more than once,
+ * in which case its last line in the file is its latest state.
+ *
+ * With the JDBC repository, the partitions of archived months (see RunPartitions) are then dropped,
+ * once no run is left in them, so the run table only holds the months kept.
+ */
+@Component
+@ConditionalOnProperty(value = "runnerz.archive.enabled", havingValue = "true")
+public class RunArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(RunArchiver.class);
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final RunRepository runRepository;
+    private final ObjectMapper objectMapper;
+    private final Optional<RunPartitions> partitions;
+    private final Path directory;
+    private final int keepMonths;
+
+    /**
+     * Constructor injection of the repository, the shared ObjectMapper, the run partitions
+     * (absent with the in-memory repository) and the settings from runnerz.archive.*.
+     */
+    public RunArchiver(RunRepository runRepository,
+                       ObjectMapper objectMapper,
+                       Optional<RunPartitions> partitions,
+                       @Value("${runnerz.archive.directory:archive}") Path directory,
+                       @Value("${runnerz.archive.keep-months:12}") int keepMonths) {
+        Assert.isTrue(keepMonths >= 0, "runnerz.archive.keep-months must not be negative");
+        this.runRepository = runRepository;
+        this.objectMapper = objectMapper;
+        this.partitions = partitions;
+        this.directory = directory;
+        this.keepMonths = keepMonths;
+    }
+
+    /**
+     * Scheduled pass: archives every month that ended more than keep-months ago.
+     */
+    @Scheduled(cron = "${runnerz.archive.cron:0 30 3 * * *}")
+    public void archive() {
+        LocalDate cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(keepMonths);
+        List<Path> files = archiveBefore(cutoff);
+        log.info("Archived {} month(s) of runs started before {}.", files.size(), cutoff);
+    }
+
+    /**
+     * Archives every month with runs started before the given date, which is rounded down to the first of its month,
+     * and drops the partitions of months before it that are left empty.
+     * @return The archive files written to, one per month.
+     */
+    public List<Path> archiveBefore(LocalDate cutoff) {
+        LocalDateTime before = cutoff.withDayOfMonth(1).atStartOfDay();
+        List<Path> files = new ArrayList<>();
+        for (RunStats month : runRepository.findStats(false, RunStats.Period.MONTH, null, before)) {
+            try {
+                files.add(archiveMonth(month.period()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to archive runs for " + MONTH.format(month.period()), e);
+            }
+        }
+        partitions.ifPresent(runPartitions -> {
+            for (YearMonth month : runPartitions.before(before.toLocalDate())) {
+                if (!runPartitions.drop(month)) {
+                    log.debug("Kept partition of {}, which has runs changed while archiving.", month);
+                }
+            }
+        });
+        return files;
+    }
+
+    private Path archiveMonth(LocalDate month) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("runs-" + MONTH.format(month) + ".ndjson.gz");
+        Path temp = Files.createTempFile(directory, "runs-" + MONTH.format(month), ".tmp");
+
+        Map<Integer, Long> versions = new LinkedHashMap<>();
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                if (Files.exists(file)) {
+                    Files.copy(file, Channels.newOutputStream(channel));
+                }
+                try (GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                    runRepository.streamVersioned(month.atStartOfDay(), month.plusMonths(1).atStartOfDay(), versioned -> {
+                        try {
+                            out.write(objectMapper.writeValueAsBytes(versioned.run()));
+                            out.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        versions.put(versioned.run().id(), versioned.version());
+                    });
+                    out.finish();
+                    channel.force(true);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        long deleted = runRepository.deleteAllUnchanged(versions).stream()
+                .filter(item -> item.status() == BulkResult.Status.DELETED)
+                .count();
+        log.debug("Archived {} runs from {} to {}; deleted {}, the rest changed meanwhile.",
+                versions.size(), MONTH.format(month), file, deleted);
+        return file;
+    }
+
+    /**
+     * Forces the directory entry of a rename to disk. Not supported on every platform (e.g. Windows),
+     * where the rename is left to the file system.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Could not sync archive directory {}: {}", directory, e.getMessage());
+        }
+    }
+}
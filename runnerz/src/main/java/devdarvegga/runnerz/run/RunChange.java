@@ -0,0 +1,24 @@
+package devdarvegga.runnerz.run;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One write to the run repository, as recorded in the RunChangeLog.
+ *
+ * @param sequence Position in the change log, starting at 1 and increasing by one per change.
+ * @param type     What happened to the run.
+ * @param id       ID of the run.
+ * @param run      The run as written; omitted for deletions.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RunChange(long sequence, Type type, Integer id, Run run) {
+
+    /**
+     * Kind of write.
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,211 @@
+package devdarvegga.runnerz.run;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static devdarvegga.runnerz.run.RunController.MAX_PAGE_SIZE;
+
+/**
+ * Serves the RunChangeLog, so consumers can follow writes to runs incrementally instead of polling GET /api/runs.
+ *
+ * To start, GET /api/runs/changes for the current sequence number, then GET /api/runs for the full state,
+ * then tail changes since that number, either by long polling or as server-sent events.
+ * Applying a change twice is harmless, so overlapping the snapshot with the first changes is fine.
+ * A 410 Gone means the consumer fell too far behind (or the application restarted) and has to start over.
+ */
+@RestController
+@RequestMapping("/api/runs/changes")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class RunChangeController {
+
+    private static final int MAX_WAIT_SECONDS = 60;
+
+    private final RunChangeLog changeLog;
+    private final Set<ChangeStream> streams = ConcurrentHashMap.newKeySet();
+    // Writes to event streams; a slow client only holds up its own virtual thread
+    private final Executor senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Constructor injection of the change log.
+     */
+    RunChangeController(RunChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * GET /api/runs/changes
+     * GET /api/runs/changes?since=42&limit=1000&wait=30
+     * Without since, answers at once with no changes and the current sequence number as next.
+     * Otherwise returns up to limit changes after since, waiting up to wait seconds (long poll) for the first one;
+     * a response with no changes means none were made in that time.
+     * Answers 410 Gone if changes after since are no longer available.
+     */
+    @GetMapping
+    DeferredResult<RunChanges> changes(@RequestParam(required = false) Long since,
+                                       @RequestParam(defaultValue = "" + MAX_PAGE_SIZE) int limit,
+                                       @RequestParam(defaultValue = "30") int wait) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE || wait < 0 || wait > MAX_WAIT_SECONDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_PAGE_SIZE + " and wait between 0 and " + MAX_WAIT_SECONDS + " seconds.");
+        }
+        if (since == null) {
+            return completed(new RunChanges(List.of(), changeLog.sequence()));
+        }
+        List<RunChange> changes = changeLog.read(since, limit);
+        if (!changes.isEmpty() || wait == 0) {
+            return completed(page(since, changes));
+        }
+
+        var result = new DeferredResult<RunChanges>(TimeUnit.SECONDS.toMillis(wait), () -> page(since, List.of()));
+        Runnable listener = () -> {
+            if (result.isSetOrExpired()) {
+                return;
+            }
+            try {
+                List<RunChange> newer = changeLog.read(since, limit);
+                if (!newer.isEmpty()) {
+                    result.setResult(page(since, newer));
+                }
+            } catch (RunChangesExpiredException e) {
+                result.setErrorResult(e);
+            }
+        };
+        changeLog.addListener(listener);
+        result.onCompletion(() -> changeLog.removeListener(listener));
+        // Covers changes appended between the read above and adding the listener
+        listener.run();
+        return result;
+    }
+
+    /**
+     * GET /api/runs/changes?since=42 with Accept: text/event-stream
+     * Streams every change after since (or after Last-Event-ID when reconnecting, or from now when neither is given)
+     * as server-sent events named created, updated or deleted, with the sequence number as event ID.
+     * A client that falls too far behind gets an expired event and the stream ends; reconnecting then answers 410 Gone.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter stream(@RequestParam(required = false) Long since,
+                      @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long after = lastEventId != null ? lastEventId : since != null ? since : changeLog.sequence();
+        // Fails with 410 Gone before the stream starts
+        changeLog.read(after, 0);
+        var stream = new ChangeStream(after);
+        streams.add(stream);
+        changeLog.addListener(stream.listener);
+        stream.emitter.onCompletion(stream::close);
+        stream.emitter.onTimeout(stream::close);
+        stream.emitter.onError(failure -> stream.close());
+        stream.signal();
+        return stream.emitter;
+    }
+
+    /**
+     * Sends a comment on every event stream, so proxies keep idle streams open and departed clients are noticed.
+     */
+    @Scheduled(fixedRate = 15, timeUnit = TimeUnit.SECONDS)
+    void heartbeat() {
+        streams.forEach(ChangeStream::heartbeat);
+    }
+
+    private static DeferredResult<RunChanges> completed(RunChanges changes) {
+        var result = new DeferredResult<RunChanges>();
+        result.setResult(changes);
+        return result;
+    }
+
+    private static RunChanges page(long since, List<RunChange> changes) {
+        return new RunChanges(changes, changes.isEmpty() ? since : changes.get(changes.size() - 1).sequence());
+    }
+
+    /**
+     * One event stream. Signals from writers and the heartbeat only schedule a send pass on a sender thread;
+     * at most one pass runs at a time, and a signal arriving during a pass makes it go round again.
+     */
+    private final class ChangeStream {
+
+        private final SseEmitter emitter = new SseEmitter(0L);
+        private final AtomicInteger pendingSignals = new AtomicInteger();
+        private final Runnable listener = this::signal;
+        private volatile boolean heartbeatDue;
+        private long cursor;
+
+        ChangeStream(long after) {
+            this.cursor = after;
+        }
+
+        void signal() {
+            if (pendingSignals.getAndIncrement() == 0) {
+                senders.execute(this::send);
+            }
+        }
+
+        void heartbeat() {
+            heartbeatDue = true;
+            signal();
+        }
+
+        private void send() {
+            int signals = 1;
+            do {
+                try {
+                    List<RunChange> changes;
+                    while (!(changes = changeLog.read(cursor, MAX_PAGE_SIZE)).isEmpty()) {
+                        for (RunChange change : changes) {
+                            emitter.send(SseEmitter.event()
+                                    .id(String.valueOf(change.sequence()))
+                                    .name(change.type().name().toLowerCase())
+                                    .data(change, MediaType.APPLICATION_JSON));
+                            cursor = change.sequence();
+                        }
+                    }
+                    if (heartbeatDue) {
+                        heartbeatDue = false;
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                } catch (RunChangesExpiredException e) {
+                    expire(e);
+                    return;
+                } catch (IOException | IllegalStateException e) {
+                    // The client has gone away or the stream has already completed
+                    close();
+                    return;
+                }
+                signals = pendingSignals.addAndGet(-signals);
+            } while (signals != 0);
+        }
+
+        private void expire(RunChangesExpiredException e) {
+            try {
+                emitter.send(SseEmitter.event().name("expired").data(e.getMessage()));
+                emitter.complete();
+            } catch (IOException | IllegalStateException ignored) {
+                // Nothing more to tell a client that has gone away
+            }
+            close();
+        }
+
+        void close() {
+            changeLog.removeListener(listener);
+            streams.remove(this);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package devdarvegga.runnerz.run;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-process log of the most recent writes to the run repository, which consumers tail by sequence number
+ * (see RunChangeController) instead of refetching every run to find out what changed.
+ *
+ * A lock-free ring buffer of runnerz.changes.capacity slots (rounded up to a power of two): a writer claims the next
+ * sequence number with one atomic increment and then stores its change in that sequence's slot, overwriting the
+ * change from capacity writes earlier. Readers never block writers. They stop at a claimed slot whose change is not
+ * stored yet, so no change is skipped, and fail with RunChangesExpiredException once a change they have not read
+ * has been overwritten.
+ *
+ * Changes are appended after the write they describe has completed (see PublishingRunRepository). Sequence numbers
+ * start over when the application restarts, so a consumer resuming with a number from before then is told to
+ * refetch as well.
+ */
+@Component
+public class RunChangeLog {
+
+    private final AtomicReferenceArray<RunChange> slots;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Set<Runnable> listeners = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor injection of the number of changes to keep, from runnerz.changes.capacity.
+     */
+    public RunChangeLog(@Value("${runnerz.changes.capacity:65536}") int capacity) {
+        Assert.isTrue(capacity > 0 && capacity <= 1 << 30, "runnerz.changes.capacity must be between 1 and 2^30");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Appends a change and notifies the listeners.
+     * @return The sequence number of the change.
+     */
+    public long append(RunChange.Type type, Integer id, Run run) {
+        long next = sequence.incrementAndGet();
+        RunChange change = new RunChange(next, type, id, run);
+        // A writer stalled for a whole lap of the buffer must not overwrite a newer change
+        slots.getAndUpdate(slot(next), current -> current == null || current.sequence() < next ? change : current);
+        listeners.forEach(Runnable::run);
+        return next;
+    }
+
+    /**
+     * Returns up to limit changes with sequence numbers above after, in order.
+     * Empty when there are no newer changes yet (or limit is 0, which just checks that after can be resumed from).
+     * @throws RunChangesExpiredException if changes after the given number are no longer buffered,
+     *                                    or the number was not handed out by this log.
+     */
+    public List<RunChange> read(long after, int limit) {
+        long last = sequence.get();
+        if (after < last - slots.length() || after > last) {
+            throw new RunChangesExpiredException(after);
+        }
+        List<RunChange> changes = new ArrayList<>((int) Math.min(limit, last - after));
+        for (long next = after + 1; next <= last && changes.size() < limit; next++) {
+            RunChange change = slots.get(slot(next));
+            if (change == null || change.sequence() < next) {
+                // Claimed by a writer that has not stored its change yet
+                break;
+            }
+            if (change.sequence() > next) {
+                throw new RunChangesExpiredException(after);
+            }
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the sequence number of the latest change, or 0 if there has been none.
+     * Tailing from here yields every change made after this call.
+     */
+    public long sequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Registers a callback run by every writer after appending a change.
+     * Listeners run on the writing thread, so they must only hand the news off, never block.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with addListener.
+     */
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence & mask);
+    }
+}
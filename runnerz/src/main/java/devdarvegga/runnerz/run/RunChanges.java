@@ -0,0 +1,10 @@
+package devdarvegga.runnerz.run;
+
+import java.util.List;
+
+/**
+ * A batch of changes from the RunChangeLog, oldest first.
+ * next is the sequence number to pass as since to get the following changes.
+ */
+public record RunChanges(List<RunChange> changes, long next) {
+}
@@ -0,0 +1,18 @@
+package devdarvegga.runnerz.run;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when changes are requested after a sequence number the RunChangeLog can no longer resume from,
+ * because they have been overwritten or the number is from before a restart.
+ *
+ * Answered with 410 Gone: the consumer has to refetch the runs and tail changes again from the current sequence.
+ */
+@ResponseStatus(HttpStatus.GONE)
+public class RunChangesExpiredException extends RuntimeException {
+
+    public RunChangesExpiredException(long since) {
+        super("Changes since " + since + " are no longer available; refetch the runs and start again from the current sequence.");
+    }
+}
@@ -0,0 +1,126 @@
+package devdarvegga.runnerz.run;
+
+import org.springframework.util.Assert;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * A batch of runs held column by column in primitive arrays, for bulk reads that visit many runs but need
+ * only some of their fields, such as aggregates and exports (see RunRepository.streamColumns).
+ *
+ * Reading a row allocates nothing except where a method returns an object (startedOn, completedOn, run).
+ * Start times are stored to the second, as the epoch second of the same wall-clock time in UTC,
+ * so no time zone is involved.
+ * Batches are reused: a consumer must copy whatever it needs to keep once it returns.
+ */
+public final class RunColumns {
+
+    private static final Location[] LOCATIONS = Location.values();
+
+    private final int[] ids;
+    private final String[] titles;
+    private final long[] startedOn;
+    private final long[] durationSeconds;
+    private final int[] miles;
+    private final byte[] locations;
+    private final double[] paces;
+    private int size;
+
+    /**
+     * Creates an empty batch holding up to capacity runs.
+     */
+    public RunColumns(int capacity) {
+        Assert.isTrue(capacity > 0, "capacity must be positive");
+        this.ids = new int[capacity];
+        this.titles = new String[capacity];
+        this.startedOn = new long[capacity];
+        this.durationSeconds = new long[capacity];
+        this.miles = new int[capacity];
+        this.locations = new byte[capacity];
+        this.paces = new double[capacity];
+    }
+
+    /**
+     * Returns the number of runs in the batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int id(int row) {
+        return ids[row];
+    }
+
+    public String title(int row) {
+        return titles[row];
+    }
+
+    /**
+     * Returns the start time as the epoch second of the same wall-clock time in UTC.
+     */
+    public long startedOnEpochSecond(int row) {
+        return startedOn[row];
+    }
+
+    public LocalDateTime startedOn(int row) {
+        return LocalDateTime.ofEpochSecond(startedOn[row], 0, ZoneOffset.UTC);
+    }
+
+    public LocalDateTime completedOn(int row) {
+        return LocalDateTime.ofEpochSecond(startedOn[row] + durationSeconds[row], 0, ZoneOffset.UTC);
+    }
+
+    public long durationSeconds(int row) {
+        return durationSeconds[row];
+    }
+
+    public int miles(int row) {
+        return miles[row];
+    }
+
+    public Location location(int row) {
+        return LOCATIONS[locations[row]];
+    }
+
+    /**
+     * Returns the pace in minutes per mile, as Run.pace() computes it.
+     */
+    public double pace(int row) {
+        return paces[row];
+    }
+
+    /**
+     * Materializes one row as a Run.
+     */
+    public Run run(int row) {
+        return new Run(ids[row], titles[row], startedOn(row), completedOn(row), miles[row], location(row));
+    }
+
+    boolean isFull() {
+        return size == ids.length;
+    }
+
+    void clear() {
+        // Drop the titles so a reused batch does not keep strings of earlier batches alive
+        Arrays.fill(titles, 0, size, null);
+        size = 0;
+    }
+
+    void add(int id, String title, long startedOnEpochSecond, long durationSeconds, int miles, int location, double pace) {
+        int row = size++;
+        this.ids[row] = id;
+        this.titles[row] = title;
+        this.startedOn[row] = startedOnEpochSecond;
+        this.durationSeconds[row] = durationSeconds;
+        this.miles[row] = miles;
+        this.locations[row] = (byte) location;
+        this.paces[row] = pace;
+    }
+
+    void add(Run run) {
+        add(run.id(), run.title(), run.startedOn().toEpochSecond(ZoneOffset.UTC), run.getDuration().toSeconds(),
+                run.miles(), run.location().ordinal(), run.pace());
+    }
+}
@@ -0,0 +1,19 @@
+package devdarvegga.runnerz.run;
+
+import java.io.IOException;
+
+/**
+ * Writes the batches of a RunRepository.streamColumns() pass to an output stream in some file format.
+ */
+interface RunColumnsWriter {
+
+    /**
+     * Writes the runs of a batch; the batch may be reused once this returns.
+     */
+    void write(RunColumns batch) throws IOException;
+
+    /**
+     * Writes whatever is still buffered and any trailer, then flushes. Does not close the output stream.
+     */
+    void finish() throws IOException;
+}
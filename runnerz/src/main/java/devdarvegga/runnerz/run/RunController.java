@@ -1,59 +1,228 @@
 package devdarvegga.runnerz.run;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for managing Run resources.
- * Maps HTTP requests to CRUD operations via JdbcRunRepository.
+ * Maps HTTP requests to CRUD operations via the active RunRepository.
+ * Serves the servlet (Tomcat) application; the "reactive" profile serves ReactiveRunController instead.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/runs")
 class RunController {
 
-    private final JdbcRunRepository runRepository;
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private static final int MAX_BULK_ITEMS = 10_000;
+
+    static final int MAX_SEARCH_RESULTS = 100;
+
+    static final int MAX_SEARCH_WINDOW = 10_000;
+
+    // Formats runs are written in, as picked for wildcard Accept headers first, with their ETag suffixes.
+    // JSON bodies keep the bare version; the binary formats need their own tags, as their bytes differ.
+    static final Map<MediaType, String> FORMATS = new LinkedHashMap<>();
+
+    static {
+        FORMATS.put(MediaType.APPLICATION_JSON, "");
+        FORMATS.put(new MediaType("application", "x-jackson-smile"), "-smile");
+        FORMATS.put(MediaType.APPLICATION_CBOR, "-cbor");
+    }
+
+    private final RunRepository runRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final RunWriteBehindBuffer writeBehind;
+    private final RunTitleIndex titleIndex;
+    private final RunResponseCache responseCache;
+    private final ContentNegotiationManager contentNegotiationManager;
 
     /**
-     * Constructor injection of the repository.
+     * Constructor injection of the repository, the shared ObjectMapper and the bean Validator.
+     * The write-behind buffer is only present with runnerz.write-behind.enabled=true,
+     * the response cache with runnerz.response-cache.enabled=true.
+     * MVC's content negotiation tells which format a response will be written in, for its ETag.
      */
-    RunController(JdbcRunRepository runRepository) {
+    RunController(RunRepository runRepository, ObjectMapper objectMapper, Validator validator,
+                  ObjectProvider<RunWriteBehindBuffer> writeBehind, RunTitleIndex titleIndex,
+                  ObjectProvider<RunResponseCache> responseCache, ContentNegotiationManager mvcContentNegotiationManager) {
         this.runRepository = runRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.writeBehind = writeBehind.getIfAvailable();
+        this.titleIndex = titleIndex;
+        this.responseCache = responseCache.getIfAvailable();
+        this.contentNegotiationManager = mvcContentNegotiationManager;
     }
 
     /**
      * GET /api/runs
-     * Returns a list of all runs.
+     * GET /api/runs?after=10&limit=50
+     * Returns all runs, or one page of runs ordered by ID when after or limit is given.
+     * Paged responses carry a Link header (rel="next") while more runs may follow.
+     * Answers 304 Not Modified without querying runs when If-None-Match matches the collection ETag.
+     * The unpaged collection is served from the response cache when it is enabled.
      */
     @GetMapping
-    List<Run> findAll() {
-        return runRepository.findAll();
+    ResponseEntity<?> findAll(@RequestParam(required = false) Integer after,
+                              @RequestParam(required = false) Integer limit,
+                              NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        int pageSize = limit == null ? MAX_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        if (after == null && limit == null && responseCache != null) {
+            return responseCache.respond("all", request, runRepository::version, runRepository::findAll);
+        }
+        if (request.checkNotModified(collectionETag(request))) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(runRepository.findAll());
+        }
+
+        List<Run> page = runRepository.findAll(after, pageSize);
+        var response = ResponseEntity.ok();
+        if (page.size() == pageSize) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", page.get(page.size() - 1).id())
+                    .replaceQueryParam("limit", pageSize)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page);
+    }
+
+    /**
+     * GET /api/runs with Accept: application/x-ndjson
+     * Streams every run as newline-delimited JSON straight from a database cursor,
+     * so memory stays flat regardless of how many runs exist.
+     */
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> streamAll() {
+        StreamingResponseBody body = outputStream -> {
+            var out = new BufferedOutputStream(outputStream);
+            runRepository.streamAll(run -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(run));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, APPLICATION_NDJSON_VALUE)
+                .body(body);
+    }
+
+    /**
+     * GET /api/runs/stats
+     * GET /api/runs/stats?groupBy=location,month&from=2024-01-01T00:00
+     * Returns totals, average pace and pace percentiles computed in the database.
+     * groupBy accepts "location" and at most one of "day", "week" or "month".
+     * Answers 304 Not Modified when If-None-Match matches the collection ETag.
+     */
+    @GetMapping("/stats")
+    List<RunStats> findStats(@RequestParam(defaultValue = "") List<String> groupBy,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                             NativeWebRequest request) {
+        boolean byLocation = false;
+        RunStats.Period period = null;
+        for (String group : groupBy) {
+            if (group.equalsIgnoreCase("location")) {
+                byLocation = true;
+                continue;
+            }
+            try {
+                RunStats.Period requested = RunStats.Period.valueOf(group.toUpperCase());
+                if (period != null && period != requested) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only one of day, week or month may be grouped by.");
+                }
+                period = requested;
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown groupBy value: " + group);
+            }
+        }
+        if (request.checkNotModified(collectionETag(request))) {
+            return null;
+        }
+        return runRepository.findStats(byLocation, period, from, to);
     }
 
     /**
      * GET /api/runs/{id}
-     * Returns a single run by ID.
-     * Throws 404 if not found.
+     * Returns a single run by ID, with its row version (and format) as a strong ETag.
+     * Answers 304 Not Modified when If-None-Match matches, and 404 if not found.
      */
     @GetMapping("/{id}")
-    Run findById(@PathVariable Integer id) {
-        return runRepository.findById(id)
+    Run findById(@PathVariable Integer id, NativeWebRequest request) {
+        VersionedRun run = runRepository.findVersionedById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Run not found."));
+        if (request.checkNotModified(eTag(run.version(), format(request)))) {
+            return null;
+        }
+        return run.run();
     }
 
     /**
      * POST /api/runs
      * Creates a new run.
      * Validates input and returns 201 Created.
+     * In write-behind mode the run is queued instead: 202 Accepted, or 429 with Retry-After when the buffer is full.
      */
-    @ResponseStatus(HttpStatus.CREATED)
     @PostMapping
-    void create(@Valid @RequestBody Run run) {
+    ResponseEntity<Void> create(@Valid @RequestBody Run run) {
+        if (writeBehind != null) {
+            if (!writeBehind.offer(run)) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .build();
+            }
+            return ResponseEntity.accepted().build();
+        }
         runRepository.create(run);
+        return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
     /**
@@ -78,12 +247,226 @@ class RunController {
         runRepository.delete(id);
     }
 
+    /**
+     * POST /api/runs/batch
+     * Creates or replaces up to 10,000 runs by ID from a JSON array or newline-delimited JSON body.
+     * All items are validated in one pass; invalid items (unparseable, failing validation, missing
+     * or repeated IDs) are reported as INVALID and the rest are written in batched transactions.
+     * Returns 200 with a per-item status report in request order.
+     */
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    BulkResult upsertAll(InputStream body) throws IOException {
+        List<BulkResult.Item> items = new ArrayList<>();
+        List<Run> valid = new ArrayList<>();
+        List<Integer> validPositions = new ArrayList<>();
+        Set<Integer> ids = new HashSet<>();
+
+        try (MappingIterator<JsonNode> nodes = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            while (nodes.hasNextValue()) {
+                if (items.size() == MAX_BULK_ITEMS) {
+                    throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "At most " + MAX_BULK_ITEMS + " runs per batch.");
+                }
+                JsonNode node = nodes.nextValue();
+                Integer id = node.hasNonNull("id") && node.get("id").canConvertToInt() ? node.get("id").asInt() : null;
+                String error = id == null ? "id is required" : !ids.add(id) ? "duplicate id in batch" : null;
+                Run run = null;
+                if (error == null) {
+                    try {
+                        run = objectMapper.treeToValue(node, Run.class);
+                        error = violations(run);
+                    } catch (IOException | IllegalArgumentException e) {
+                        error = e.getMessage();
+                    }
+                }
+                if (error == null) {
+                    validPositions.add(items.size());
+                    valid.add(run);
+                    items.add(null);
+                } else {
+                    items.add(new BulkResult.Item(id, BulkResult.Status.INVALID, error));
+                }
+            }
+        }
+
+        List<BulkResult.Item> written = runRepository.upsertAll(valid);
+        for (int i = 0; i < written.size(); i++) {
+            items.set(validPositions.get(i), written.get(i));
+        }
+        return BulkResult.of(items);
+    }
+
+    /**
+     * DELETE /api/runs?ids=1,2,3
+     * Deletes up to 10,000 runs by ID in batched transactions.
+     * Returns 200 with a per-item status report (DELETED or NOT_FOUND) in request order.
+     */
+    @DeleteMapping(params = "ids")
+    BulkResult deleteAll(@RequestParam List<Integer> ids) {
+        if (ids.size() > MAX_BULK_ITEMS) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "At most " + MAX_BULK_ITEMS + " ids per batch.");
+        }
+        return BulkResult.of(runRepository.deleteAll(ids));
+    }
+
+    /**
+     * Validates a run against its bean validation constraints.
+     * @return Violations joined into one message, or null if the run is valid.
+     */
+    private String violations(Run run) {
+        Set<ConstraintViolation<Run>> violations = validator.validate(run);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
     /**
      * GET /api/runs/search?location=INDOOR
-     * Returns all runs filtered by location.
+     * GET /api/runs/search?location=INDOOR&from=2024-02-01T00:00&to=2024-03-01T00:00
+     * Returns runs filtered by location, optionally limited to runs started within [from, to).
+     * Answers 304 Not Modified when If-None-Match matches the collection ETag.
+     * Served from the response cache when it is enabled.
+     */
+    @GetMapping(value = "/search", params = "location")
+    ResponseEntity<?> findByLocation(@RequestParam Location location,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                     NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        if (responseCache != null) {
+            return responseCache.respond("location=" + location + "&from=" + from + "&to=" + to, request,
+                    runRepository::version, () -> runRepository.findByLocation(location, from, to));
+        }
+        if (request.checkNotModified(collectionETag(request))) {
+            return null;
+        }
+        return ResponseEntity.ok(runRepository.findByLocation(location, from, to));
+    }
+
+    /**
+     * GET /api/runs/search?q=morning+run
+     * GET /api/runs/search?q=morning+run&offset=20&limit=20
+     * Full-text search over run titles, answered from the in-memory title index.
+     * Runs matching more (and rarer) words of the query rank first; results are paged by offset and limit,
+     * up to the first 10,000 hits.
+     */
+    @GetMapping(value = "/search", params = "q")
+    RunSearchResult search(@RequestParam String q,
+                           @RequestParam(defaultValue = "0") int offset,
+                           @RequestParam(defaultValue = "20") int limit) {
+        if (offset < 0 || limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "offset must not be negative and limit must be between 1 and " + MAX_SEARCH_RESULTS + ".");
+        }
+        // The index keeps the top offset + limit hits while scoring, so deep pages are refused
+        if (offset > MAX_SEARCH_WINDOW - limit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "offset + limit must not exceed " + MAX_SEARCH_WINDOW + ".");
+        }
+        RunTitleIndex.Page page = titleIndex.search(q, offset, limit);
+        Map<Integer, Run> runs = runRepository.findAllById(page.hits().stream().map(RunTitleIndex.Hit::id).toList())
+                .stream()
+                .collect(Collectors.toMap(Run::id, Function.identity()));
+        // Runs deleted by another process since they were indexed are skipped
+        List<RunSearchResult.Hit> hits = page.hits().stream()
+                .filter(hit -> runs.containsKey(hit.id()))
+                .map(hit -> new RunSearchResult.Hit(runs.get(hit.id()), hit.score()))
+                .toList();
+        return new RunSearchResult(page.total(), hits);
+    }
+
+    /**
+     * GET /api/runs/fastest?limit=10
+     * Returns the fastest runs by pace (minutes per mile).
+     * Answers 304 Not Modified when If-None-Match matches the collection ETag.
+     */
+    @GetMapping("/fastest")
+    List<Run> findFastest(@RequestParam(defaultValue = "10") int limit, NativeWebRequest request) {
+        return findByPace(null, null, limit, request);
+    }
+
+    /**
+     * GET /api/runs/pace?min=6.5&max=8&limit=100
+     * Returns runs with a pace within [min, max] minutes per mile, fastest first; either bound may be omitted.
+     * Answers 304 Not Modified when If-None-Match matches the collection ETag.
+     */
+    @GetMapping("/pace")
+    List<Run> findByPace(@RequestParam(required = false) Double min,
+                         @RequestParam(required = false) Double max,
+                         @RequestParam(defaultValue = "" + MAX_PAGE_SIZE) int limit,
+                         NativeWebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        if (request.checkNotModified(collectionETag(request))) {
+            return null;
+        }
+        return runRepository.findByPace(min, max, limit);
+    }
+
+    /**
+     * ETag for responses derived from the whole run collection.
+     * Read before the runs themselves, so a concurrent write can only make it older than the body
+     * (costing the client one extra download), never newer.
+     */
+    private String collectionETag(NativeWebRequest request) {
+        return weakETag(runRepository.version(), format(request));
+    }
+
+    /**
+     * Picks the format a response will be written in, the way Spring MVC picks a converter.
+     * An unparseable Accept header is answered with 406 by MVC, so the format does not matter then.
+     */
+    private MediaType format(NativeWebRequest request) {
+        try {
+            return format(contentNegotiationManager.resolveMediaTypes(request));
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+    }
+
+    /**
+     * Returns the first format compatible with the most preferred of the acceptable media types,
+     * JSON for wildcards and when none is compatible.
+     */
+    static MediaType format(List<MediaType> acceptable) {
+        for (MediaType type : acceptable) {
+            for (MediaType format : FORMATS.keySet()) {
+                if (type.isCompatibleWith(format)) {
+                    return format;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Strong ETag for a version of a run (or collection) written in the given format.
+     */
+    static String eTag(long version, MediaType format) {
+        return "\"" + version + FORMATS.getOrDefault(format, "") + "\"";
+    }
+
+    /**
+     * Weak ETag for collection responses. Tomcat does not compress responses carrying a strong ETag,
+     * since the compressed body is no longer byte-identical; collections are usually above
+     * server.compression.min-response-size, single runs never are.
+     */
+    static String weakETag(long version, MediaType format) {
+        return "W/" + eTag(version, format);
+    }
+
+    /**
+     * Answers 503 with Retry-After when no database connection became available within
+     * spring.datasource.hikari.connection-timeout, so excess load (e.g. many virtual threads)
+     * is shed quickly instead of queueing on the pool.
      */
-    @GetMapping("/search")
-    List<Run> findByLocation(@RequestParam String location) {
-        return runRepository.findByLocation(location);
+    @ExceptionHandler(CannotGetJdbcConnectionException.class)
+    ResponseEntity<Void> connectionPoolExhausted() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package devdarvegga.runnerz.run;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes runs as CSV (RFC 4180) with a header row, one column per column of the run table except version.
+ * Start and completion times are ISO local date-times, location is the Location name,
+ * and a title is quoted only when it contains a comma, quote or line break.
+ */
+final class RunCsvWriter implements RunColumnsWriter {
+
+    static final String HEADER = "id,title,started_on,completed_on,miles,location,duration_seconds,pace";
+
+    private final Writer out;
+    // Reused for every row
+    private final StringBuilder line = new StringBuilder(128);
+
+    RunCsvWriter(OutputStream out) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        this.out.write(HEADER);
+        this.out.write("\r\n");
+    }
+
+    @Override
+    public void write(RunColumns batch) throws IOException {
+        for (int row = 0; row < batch.size(); row++) {
+            line.setLength(0);
+            line.append(batch.id(row)).append(',');
+            appendTitle(batch.title(row));
+            line.append(',');
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(batch.startedOn(row), line);
+            line.append(',');
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(batch.completedOn(row), line);
+            line.append(',').append(batch.miles(row))
+                    .append(',').append(batch.location(row).name())
+                    .append(',').append(batch.durationSeconds(row))
+                    .append(',').append(batch.pace(row))
+                    .append("\r\n");
+            out.append(line);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private void appendTitle(String title) {
+        if (title == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < title.length() && !quote; i++) {
+            char c = title.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            line.append(title);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,12 @@
+package devdarvegga.runnerz.run;
+
+/**
+ * An export file written by RunExporter.
+ *
+ * @param file   File name within runnerz.export.directory.
+ * @param format Format of the file.
+ * @param runs   Number of runs exported.
+ * @param bytes  Size of the file.
+ */
+public record RunExport(String file, RunExportFormat format, long runs, long bytes) {
+}
@@ -0,0 +1,78 @@
+package devdarvegga.runnerz.run;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * Bulk export of runs for analysis, as CSV or Parquet (see RunExporter), instead of paging through GET /api/runs.
+ */
+@RestController
+@RequestMapping("/api/runs/export")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class RunExportController {
+
+    private final RunExporter exporter;
+
+    /**
+     * Constructor injection of the exporter.
+     */
+    RunExportController(RunExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    /**
+     * GET /api/runs/export?format=csv
+     * GET /api/runs/export?format=parquet&from=2024-01-01T00:00&to=2025-01-01T00:00
+     * Streams the runs that started within [from, to) (all runs by default), ordered by start time, as an attachment.
+     * CSV is gzipped in transit when the client accepts it; Parquet pages are always GZIP-compressed.
+     */
+    @GetMapping
+    ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        RunExportFormat exportFormat = parse(format);
+        StreamingResponseBody body = outputStream -> exporter.export(exportFormat, from, to, outputStream);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, exportFormat.contentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("runs." + exportFormat.name().toLowerCase())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    /**
+     * POST /api/runs/export?format=parquet
+     * Writes the runs that started within [from, to) to a new file in runnerz.export.directory
+     * and returns 201 Created with its name, run count and size.
+     */
+    @PostMapping
+    ResponseEntity<RunExport> exportToFile(@RequestParam(defaultValue = "csv") String format,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to)
+            throws IOException {
+        return ResponseEntity.status(HttpStatus.CREATED).body(exporter.exportToFile(parse(format), from, to));
+    }
+
+    private static RunExportFormat parse(String format) {
+        try {
+            return RunExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be csv or parquet.");
+        }
+    }
+}
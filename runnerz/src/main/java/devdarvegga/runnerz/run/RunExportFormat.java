@@ -0,0 +1,29 @@
+package devdarvegga.runnerz.run;
+
+/**
+ * File formats runs can be exported in (RunExporter).
+ */
+public enum RunExportFormat {
+
+    CSV("text/csv", "csv.gz"),
+    PARQUET("application/vnd.apache.parquet", "parquet");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    RunExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Extension of export files. CSV files are gzipped; Parquet compresses its own pages.
+     */
+    public String fileExtension() {
+        return fileExtension;
+    }
+}
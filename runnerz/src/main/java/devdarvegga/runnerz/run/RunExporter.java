@@ -0,0 +1,106 @@
+package devdarvegga.runnerz.run;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports runs as CSV or Parquet, to an output stream (GET /api/runs/export) or to a file in runnerz.export.directory.
+ *
+ * Runs are read with RunRepository.streamColumns(), i.e. from a forward-only database cursor in batches of columns,
+ * and written as they arrive; Parquet buffers runnerz.export.row-group-size runs at a time. Memory use therefore
+ * does not grow with the number of runs exported.
+ *
+ * Files are written under a temporary name and renamed once complete, so a file in the directory is never partial.
+ */
+@Component
+public class RunExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(RunExporter.class);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final RunRepository runRepository;
+    private final Path directory;
+    private final int rowGroupSize;
+
+    /**
+     * Constructor injection of the repository and the settings from runnerz.export.*.
+     */
+    public RunExporter(RunRepository runRepository,
+                       @Value("${runnerz.export.directory:exports}") Path directory,
+                       @Value("${runnerz.export.row-group-size:100000}") int rowGroupSize) {
+        Assert.isTrue(rowGroupSize > 0, "runnerz.export.row-group-size must be positive");
+        this.runRepository = runRepository;
+        this.directory = directory;
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    /**
+     * Writes the runs that started within [from, to), ordered by start time, to out. Either bound may be null.
+     * Does not close out.
+     * @return The number of runs written.
+     */
+    public long export(RunExportFormat format, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        RunColumnsWriter writer = switch (format) {
+            case CSV -> new RunCsvWriter(out);
+            case PARQUET -> new RunParquetWriter(new BufferedOutputStream(out, 1 << 16), rowGroupSize);
+        };
+        long[] runs = new long[1];
+        try {
+            runRepository.streamColumns(from, to, batch -> {
+                try {
+                    writer.write(batch);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                runs[0] += batch.size();
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+        return runs[0];
+    }
+
+    /**
+     * Exports the runs that started within [from, to) to a new file in the export directory,
+     * named runs-yyyyMMdd-HHmmss-<unique>.csv.gz or .parquet.
+     */
+    public RunExport exportToFile(RunExportFormat format, LocalDateTime from, LocalDateTime to) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "runs-" + FILE_TIMESTAMP.format(LocalDateTime.now()) + "-", ".tmp");
+        try {
+            long runs;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                if (format == RunExportFormat.CSV) {
+                    try (var gzip = new GZIPOutputStream(out, 1 << 16)) {
+                        runs = export(format, from, to, gzip);
+                    }
+                } else {
+                    runs = export(format, from, to, out);
+                }
+            }
+            String name = temp.getFileName().toString();
+            Path file = temp.resolveSibling(name.substring(0, name.length() - ".tmp".length()) + "." + format.fileExtension());
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Exported {} runs to {}.", runs, file);
+            return new RunExport(file.getFileName().toString(), format, runs, Files.size(file));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
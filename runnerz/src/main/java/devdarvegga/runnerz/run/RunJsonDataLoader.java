@@ -1,35 +1,70 @@
 package devdarvegga.runnerz.run;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Loads initial run data from a JSON file at application startup.
  * Only triggers if the repository is empty.
+ *
+ * The file is parsed incrementally with Jackson's streaming API and handed in chunks
+ * through a bounded queue to writer threads calling RunRepository.saveAll(), so parsing
+ * and inserting overlap and memory stays bounded regardless of the file size.
  */
 @Component
 public class RunJsonDataLoader implements CommandLineRunner {
 
     private static final Logger log = LoggerFactory.getLogger(RunJsonDataLoader.class);
 
+    // Marks the end of input for writer threads
+    private static final Chunk END = new Chunk(-1, List.of());
+
     private final ObjectMapper objectMapper;
     private final RunRepository runRepository;
+    private final int chunkSize;
+    private final int writers;
+
+    /**
+     * A slice of the input, with the position of its first run in the file.
+     */
+    private record Chunk(int offset, List<Run> runs) {
+    }
 
     /**
-     * Constructor injection of ObjectMapper and the target RunRepository.
-     * Uses @Qualifier to ensure JdbcRunRepository is selected.
+     * Constructor injection of ObjectMapper and the active RunRepository
+     * (JDBC by default, in-memory with the "cache-only" profile).
+     * Chunk size and writer count are read from runnerz.loader.*.
      */
-    public RunJsonDataLoader(ObjectMapper objectMapper, @Qualifier("jdbcRunRepository") RunRepository runRepository) {
+    public RunJsonDataLoader(ObjectMapper objectMapper,
+                             RunRepository runRepository,
+                             @Value("${runnerz.loader.chunk-size:1000}") int chunkSize,
+                             @Value("${runnerz.loader.writers:2}") int writers) {
+        Assert.isTrue(chunkSize > 0, "runnerz.loader.chunk-size must be positive");
+        Assert.isTrue(writers > 0, "runnerz.loader.writers must be positive");
         this.objectMapper = objectMapper;
         this.runRepository = runRepository;
+        this.chunkSize = chunkSize;
+        this.writers = writers;
     }
 
     /**
@@ -40,9 +75,16 @@ public class RunJsonDataLoader implements CommandLineRunner {
     public void run(String... args) throws Exception {
         if (runRepository.count() == 0) {
             try (InputStream inputStream = TypeReference.class.getResourceAsStream("/data/runs.json")) {
-                Runs allRuns = objectMapper.readValue(inputStream, Runs.class);
-                log.info("Reading {} runs from JSON data and saving to in-memory collection.", allRuns.runs().size());
-                runRepository.saveAll(allRuns.runs());
+                if (inputStream == null) {
+                    log.info("Not loading Runs from JSON data because /data/runs.json was not found.");
+                    return;
+                }
+                BatchResult result = load(inputStream);
+                if (result.hasFailures()) {
+                    log.warn("Saved {} runs; {} chunk(s) failed: {}", result.saved(), result.failures().size(), result.failures());
+                } else {
+                    log.info("Saved {} runs.", result.saved());
+                }
             } catch (IOException e) {
                 throw new RuntimeException("Failed to read JSON data", e);
             }
@@ -50,4 +92,100 @@ public class RunJsonDataLoader implements CommandLineRunner {
             log.info("Not loading Runs from JSON data because the collection contains data.");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Streams runs from JSON into the repository.
+     * Accepts either {"runs": [...]} (the Runs wrapper) or a bare array of runs.
+     * Failure indexes in the result are positions in the input.
+     */
+    public BatchResult load(InputStream inputStream) throws IOException, InterruptedException {
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(writers * 2);
+        ExecutorService executor = Executors.newFixedThreadPool(writers, Thread.ofPlatform().name("run-loader-", 0).factory());
+        List<Future<BatchResult>> results = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            results.add(executor.submit(() -> write(queue)));
+        }
+
+        try (JsonParser parser = objectMapper.createParser(inputStream)) {
+            moveToRunsArray(parser);
+            int offset = 0;
+            List<Run> runs = new ArrayList<>(chunkSize);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                runs.add(objectMapper.readValue(parser, Run.class));
+                if (runs.size() == chunkSize) {
+                    queue.put(new Chunk(offset, runs));
+                    offset += runs.size();
+                    runs = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!runs.isEmpty()) {
+                queue.put(new Chunk(offset, runs));
+            }
+            log.debug("Parsed {} runs from JSON data.", offset + runs.size());
+        } finally {
+            for (int i = 0; i < writers; i++) {
+                queue.put(END);
+            }
+            executor.shutdown();
+        }
+
+        int saved = 0;
+        List<BatchResult.ChunkFailure> failures = new ArrayList<>();
+        for (Future<BatchResult> result : results) {
+            try {
+                saved += result.get().saved();
+                failures.addAll(result.get().failures());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Run loader failed", e.getCause());
+            }
+        }
+        failures.sort(Comparator.comparingInt(BatchResult.ChunkFailure::fromIndex));
+        return new BatchResult(saved, List.copyOf(failures));
+    }
+
+    /**
+     * Writer loop: saves chunks until END is taken from the queue.
+     * Failures are recorded rather than thrown, so a bad chunk never stalls the parser on a full queue.
+     */
+    private BatchResult write(BlockingQueue<Chunk> queue) throws InterruptedException {
+        int saved = 0;
+        List<BatchResult.ChunkFailure> failures = new ArrayList<>();
+        for (Chunk chunk = queue.take(); chunk != END; chunk = queue.take()) {
+            int index = chunk.offset() / chunkSize;
+            try {
+                BatchResult result = runRepository.saveAll(chunk.runs());
+                saved += result.saved();
+                for (BatchResult.ChunkFailure failure : result.failures()) {
+                    failures.add(new BatchResult.ChunkFailure(index,
+                            chunk.offset() + failure.fromIndex(), chunk.offset() + failure.toIndex(), failure.reason()));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to save runs {}..{}: {}", chunk.offset(), chunk.offset() + chunk.runs().size() - 1, e.getMessage());
+                failures.add(new BatchResult.ChunkFailure(index, chunk.offset(), chunk.offset() + chunk.runs().size(), e.getMessage()));
+            }
+        }
+        return new BatchResult(saved, failures);
+    }
+
+    /**
+     * Positions the parser on the START_ARRAY token of the runs, skipping any other fields.
+     */
+    private static void moveToRunsArray(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            return;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object or array of runs but found " + token);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("runs") && value == JsonToken.START_ARRAY) {
+                return;
+            }
+            parser.skipChildren();
+        }
+        throw new IOException("No \"runs\" array found in JSON data");
+    }
+}
@@ -0,0 +1,516 @@
+package devdarvegga.runnerz.run;
+
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes runs as an Apache Parquet file, with the columns of the run table except version.
+ *
+ * Runs are buffered up to rowGroupSize and then written as one row group, each column as a single
+ * GZIP-compressed, PLAIN-encoded data page, so memory is bounded by one row group however many runs are written.
+ * The file is written front to back without seeking, so it can go straight to an HTTP response;
+ * the footer (schema, row group offsets and per-column min/max of the integer columns) follows the last row group.
+ *
+ * Column types: id and miles INT32, title STRING (the only optional column, as in the table),
+ * started_on and completed_on TIMESTAMP(MILLIS) not adjusted to UTC (local date-times, like the TIMESTAMP columns),
+ * location ENUM with the Location name, duration_seconds INT64 and pace DOUBLE.
+ *
+ * Only the subset of the format needed here is implemented: the page headers and footer are
+ * Thrift compact protocol structs, written by ThriftWriter below with the field IDs of parquet.thrift.
+ */
+final class RunParquetWriter implements RunColumnsWriter {
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+    // parquet.thrift enum values
+    private static final int INT32 = 1;
+    private static final int INT64 = 2;
+    private static final int DOUBLE = 5;
+    private static final int BYTE_ARRAY = 6;
+    private static final int REQUIRED = 0;
+    private static final int OPTIONAL = 1;
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int CONVERTED_ENUM = 4;
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_RLE = 3;
+    private static final int CODEC_GZIP = 2;
+    private static final int DATA_PAGE = 0;
+
+    private static final String[] COLUMNS =
+            {"id", "title", "started_on", "completed_on", "miles", "location", "duration_seconds", "pace"};
+    private static final int[] TYPES = {INT32, BYTE_ARRAY, INT64, INT64, INT32, BYTE_ARRAY, INT64, DOUBLE};
+    private static final int ID = 0;
+    private static final int TITLE = 1;
+    private static final int STARTED_ON = 2;
+    private static final int COMPLETED_ON = 3;
+    private static final int MILES = 4;
+    private static final int LOCATION = 5;
+    private static final int DURATION_SECONDS = 6;
+    private static final int PACE = 7;
+
+    private static final byte[][] LOCATION_NAMES;
+
+    static {
+        Location[] locations = Location.values();
+        LOCATION_NAMES = new byte[locations.length][];
+        for (Location location : locations) {
+            LOCATION_NAMES[location.ordinal()] = location.name().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private final PositionOutputStream out;
+    private final int rowGroupSize;
+
+    // The row group being buffered
+    private final int[] ids;
+    private final String[] titles;
+    private final long[] startedOn;
+    private final long[] durationSeconds;
+    private final int[] miles;
+    private final byte[] locations;
+    private final double[] paces;
+    private int rows;
+
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private long totalRows;
+
+    RunParquetWriter(OutputStream out, int rowGroupSize) throws IOException {
+        Assert.isTrue(rowGroupSize > 0, "rowGroupSize must be positive");
+        this.out = new PositionOutputStream(out);
+        this.rowGroupSize = rowGroupSize;
+        this.ids = new int[rowGroupSize];
+        this.titles = new String[rowGroupSize];
+        this.startedOn = new long[rowGroupSize];
+        this.durationSeconds = new long[rowGroupSize];
+        this.miles = new int[rowGroupSize];
+        this.locations = new byte[rowGroupSize];
+        this.paces = new double[rowGroupSize];
+        this.out.write(MAGIC);
+    }
+
+    @Override
+    public void write(RunColumns batch) throws IOException {
+        for (int row = 0; row < batch.size(); row++) {
+            ids[rows] = batch.id(row);
+            titles[rows] = batch.title(row);
+            startedOn[rows] = batch.startedOnEpochSecond(row);
+            durationSeconds[rows] = batch.durationSeconds(row);
+            miles[rows] = batch.miles(row);
+            locations[rows] = (byte) batch.location(row).ordinal();
+            paces[rows] = batch.pace(row);
+            if (++rows == rowGroupSize) {
+                writeRowGroup();
+            }
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (rows > 0) {
+            writeRowGroup();
+        }
+        byte[] footer = footer();
+        out.write(footer);
+        out.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(footer.length).array());
+        out.write(MAGIC);
+        out.flush();
+    }
+
+    private void writeRowGroup() throws IOException {
+        List<ColumnChunk> chunks = new ArrayList<>(COLUMNS.length);
+        for (int column = 0; column < COLUMNS.length; column++) {
+            chunks.add(writeColumn(column));
+        }
+        rowGroups.add(new RowGroup(rows, chunks));
+        totalRows += rows;
+        Arrays.fill(titles, 0, rows, null);
+        rows = 0;
+    }
+
+    /**
+     * Writes one column of the buffered row group as a single data page.
+     */
+    private ColumnChunk writeColumn(int column) throws IOException {
+        var page = new LittleEndianBuffer(rows * 8 + 64);
+        long nulls = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        switch (column) {
+            case TITLE -> {
+                writeDefinitionLevels(page);
+                for (int row = 0; row < rows; row++) {
+                    if (titles[row] == null) {
+                        nulls++;
+                    } else {
+                        page.writeBinary(titles[row].getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            case LOCATION -> {
+                for (int row = 0; row < rows; row++) {
+                    page.writeBinary(LOCATION_NAMES[locations[row]]);
+                }
+            }
+            case PACE -> {
+                for (int row = 0; row < rows; row++) {
+                    page.writeDouble(paces[row]);
+                }
+            }
+            default -> {
+                for (int row = 0; row < rows; row++) {
+                    long value = integerValue(column, row);
+                    if (TYPES[column] == INT32) {
+                        page.writeInt((int) value);
+                    } else {
+                        page.writeLong(value);
+                    }
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+        }
+
+        var compressed = new ByteArrayOutputStream(page.size() / 2 + 64);
+        try (var gzip = new GZIPOutputStream(compressed)) {
+            page.writeTo(gzip);
+        }
+        byte[] header = new ThriftWriter()
+                .i32(1, DATA_PAGE)
+                .i32(2, page.size())
+                .i32(3, compressed.size())
+                .beginStruct(5)
+                .i32(1, rows)
+                .i32(2, ENCODING_PLAIN)
+                .i32(3, ENCODING_RLE)
+                .i32(4, ENCODING_RLE)
+                .endStruct()
+                .finish();
+
+        long offset = out.position();
+        out.write(header);
+        compressed.writeTo(out);
+        boolean integer = TYPES[column] == INT32 || TYPES[column] == INT64;
+        return new ColumnChunk(offset, rows, header.length + page.size(), header.length + compressed.size(), nulls,
+                integer ? plain(TYPES[column], min) : null, integer ? plain(TYPES[column], max) : null);
+    }
+
+    /**
+     * Returns the value of an INT32 or INT64 column; timestamps are epoch milliseconds of the UTC wall clock.
+     */
+    private long integerValue(int column, int row) {
+        return switch (column) {
+            case ID -> ids[row];
+            case STARTED_ON -> startedOn[row] * 1000;
+            case COMPLETED_ON -> (startedOn[row] + durationSeconds[row]) * 1000;
+            case MILES -> miles[row];
+            case DURATION_SECONDS -> durationSeconds[row];
+            default -> throw new IllegalArgumentException("Not an integer column: " + COLUMNS[column]);
+        };
+    }
+
+    /**
+     * Writes the definition levels of the title column (1 = present, 0 = null) as RLE runs,
+     * prefixed with their length as data pages (v1) require.
+     */
+    private void writeDefinitionLevels(LittleEndianBuffer page) {
+        var levels = new LittleEndianBuffer(16);
+        int row = 0;
+        while (row < rows) {
+            boolean present = titles[row] != null;
+            int run = 1;
+            while (row + run < rows && (titles[row + run] != null) == present) {
+                run++;
+            }
+            levels.writeVarint(run << 1);
+            levels.writeByte(present ? 1 : 0);
+            row += run;
+        }
+        page.writeInt(levels.size());
+        page.write(levels.toByteArray(), 0, levels.size());
+    }
+
+    private byte[] footer() {
+        var thrift = new ThriftWriter().i32(1, 1);
+
+        thrift.beginList(2, ThriftWriter.STRUCT, COLUMNS.length + 1)
+                .beginElement().string(4, "run").i32(5, COLUMNS.length).endStruct();
+        for (int column = 0; column < COLUMNS.length; column++) {
+            thrift.beginElement()
+                    .i32(1, TYPES[column])
+                    .i32(3, column == TITLE ? OPTIONAL : REQUIRED)
+                    .string(4, COLUMNS[column]);
+            switch (column) {
+                case TITLE -> thrift.i32(6, CONVERTED_UTF8).beginStruct(10).emptyStruct(1).endStruct();
+                case LOCATION -> thrift.i32(6, CONVERTED_ENUM).beginStruct(10).emptyStruct(4).endStruct();
+                case STARTED_ON, COMPLETED_ON -> thrift.beginStruct(10)
+                        .beginStruct(8).bool(1, false).beginStruct(2).emptyStruct(1).endStruct().endStruct()
+                        .endStruct();
+                default -> {
+                }
+            }
+            thrift.endStruct();
+        }
+
+        thrift.i64(3, totalRows);
+
+        thrift.beginList(4, ThriftWriter.STRUCT, rowGroups.size());
+        for (RowGroup rowGroup : rowGroups) {
+            long uncompressed = 0;
+            long compressed = 0;
+            thrift.beginElement().beginList(1, ThriftWriter.STRUCT, COLUMNS.length);
+            for (int column = 0; column < COLUMNS.length; column++) {
+                ColumnChunk chunk = rowGroup.columns().get(column);
+                uncompressed += chunk.uncompressedSize();
+                compressed += chunk.compressedSize();
+                thrift.beginElement()
+                        .i64(2, chunk.offset())
+                        .beginStruct(3)
+                        .i32(1, TYPES[column]);
+                if (column == TITLE) {
+                    thrift.beginList(2, ThriftWriter.I32, 2).i32Element(ENCODING_PLAIN).i32Element(ENCODING_RLE);
+                } else {
+                    thrift.beginList(2, ThriftWriter.I32, 1).i32Element(ENCODING_PLAIN);
+                }
+                thrift.beginList(3, ThriftWriter.BINARY, 1).stringElement(COLUMNS[column])
+                        .i32(4, CODEC_GZIP)
+                        .i64(5, chunk.values())
+                        .i64(6, chunk.uncompressedSize())
+                        .i64(7, chunk.compressedSize())
+                        .i64(9, chunk.offset())
+                        .beginStruct(12)
+                        .i64(3, chunk.nulls());
+                if (chunk.min() != null) {
+                    thrift.binary(5, chunk.max()).binary(6, chunk.min());
+                }
+                thrift.endStruct().endStruct().endStruct();
+            }
+            thrift.i64(2, uncompressed)
+                    .i64(3, rowGroup.rows())
+                    .i64(5, rowGroup.columns().get(0).offset())
+                    .i64(6, compressed)
+                    .endStruct();
+        }
+
+        thrift.string(6, "runnerz");
+        // TYPE_ORDER for every column, which tells readers the min/max statistics can be trusted
+        thrift.beginList(7, ThriftWriter.STRUCT, COLUMNS.length);
+        for (int column = 0; column < COLUMNS.length; column++) {
+            thrift.beginElement().emptyStruct(1).endStruct();
+        }
+        return thrift.finish();
+    }
+
+    private static byte[] plain(int type, long value) {
+        return type == INT32
+                ? ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) value).array()
+                : ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array();
+    }
+
+    private record ColumnChunk(long offset, long values, long uncompressedSize, long compressedSize, long nulls,
+                               byte[] min, byte[] max) {
+    }
+
+    private record RowGroup(long rows, List<ColumnChunk> columns) {
+    }
+
+    /**
+     * Counts the bytes written, for the offsets in the footer.
+     */
+    private static final class PositionOutputStream extends FilterOutputStream {
+
+        private long position;
+
+        PositionOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        long position() {
+            return position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+    }
+
+    /**
+     * Growable byte buffer writing little-endian values, as PLAIN encoding stores them.
+     */
+    private static class LittleEndianBuffer extends ByteArrayOutputStream {
+
+        LittleEndianBuffer(int size) {
+            super(size);
+        }
+
+        void writeInt(int value) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                write(value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            for (int shift = 0; shift < 64; shift += 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        void writeDouble(double value) {
+            writeLong(Double.doubleToLongBits(value));
+        }
+
+        void writeBinary(byte[] value) {
+            writeInt(value.length);
+            write(value, 0, value.length);
+        }
+
+        void writeByte(int value) {
+            write(value);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+    }
+
+    /**
+     * Writes a Thrift compact protocol struct. Fields must be written in increasing ID order within each struct.
+     */
+    private static final class ThriftWriter extends LittleEndianBuffer {
+
+        static final int TRUE = 1;
+        static final int FALSE = 2;
+        static final int I32 = 5;
+        static final int I64 = 6;
+        static final int BINARY = 8;
+        static final int LIST = 9;
+        static final int STRUCT = 12;
+
+        // Last field ID written in each enclosing struct, for the delta-encoded field headers
+        private final int[] lastFieldIds = new int[16];
+        private int depth;
+
+        ThriftWriter() {
+            super(256);
+        }
+
+        ThriftWriter i32(int id, int value) {
+            fieldHeader(id, I32);
+            writeVarint(zigzag(value));
+            return this;
+        }
+
+        ThriftWriter i64(int id, long value) {
+            fieldHeader(id, I64);
+            writeVarint(zigzag(value));
+            return this;
+        }
+
+        ThriftWriter bool(int id, boolean value) {
+            fieldHeader(id, value ? TRUE : FALSE);
+            return this;
+        }
+
+        ThriftWriter binary(int id, byte[] value) {
+            fieldHeader(id, BINARY);
+            writeVarint(value.length);
+            write(value, 0, value.length);
+            return this;
+        }
+
+        ThriftWriter string(int id, String value) {
+            return binary(id, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        ThriftWriter beginStruct(int id) {
+            fieldHeader(id, STRUCT);
+            return beginElement();
+        }
+
+        ThriftWriter emptyStruct(int id) {
+            return beginStruct(id).endStruct();
+        }
+
+        ThriftWriter endStruct() {
+            write(0);
+            depth--;
+            return this;
+        }
+
+        ThriftWriter beginList(int id, int elementType, int size) {
+            fieldHeader(id, LIST);
+            if (size < 15) {
+                write(size << 4 | elementType);
+            } else {
+                write(0xF0 | elementType);
+                writeVarint(size);
+            }
+            return this;
+        }
+
+        /**
+         * Starts a struct element of a list; end it with endStruct().
+         */
+        ThriftWriter beginElement() {
+            lastFieldIds[++depth] = 0;
+            return this;
+        }
+
+        ThriftWriter i32Element(int value) {
+            writeVarint(zigzag(value));
+            return this;
+        }
+
+        ThriftWriter stringElement(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+            return this;
+        }
+
+        /**
+         * Ends the outermost struct and returns the encoded bytes.
+         */
+        byte[] finish() {
+            write(0);
+            return toByteArray();
+        }
+
+        private void fieldHeader(int id, int type) {
+            int delta = id - lastFieldIds[depth];
+            if (delta > 0 && delta <= 15) {
+                write(delta << 4 | type);
+            } else {
+                write(type);
+                writeVarint(zigzag(id));
+            }
+            lastFieldIds[depth] = id;
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+}
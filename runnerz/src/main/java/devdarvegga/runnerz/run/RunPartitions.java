@@ -0,0 +1,228 @@
+package devdarvegga.runnerz.run;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Monthly partitions of the run table, keyed on started_on, in the run_partitions schema as run_pYYYYMM.
+ *
+ * On PostgreSQL (schema-postgresql.sql) run is a table partitioned by range, so reads of run are pruned by the
+ * planner. On H2 (schema.sql) the partitions are plain tables with a CHECK on their month, and run is a view of
+ * all of them, recreated whenever a partition is added or dropped. Either way writes go straight to the partition
+ * of the run's month, and the run_id table, keyed on id alone, keeps IDs unique across partitions and tells
+ * which partition holds a run.
+ *
+ * Partitions are created by the create_run_partition(first_day) database function on the first write to their month,
+ * and listed in run_month. H2 commits the open transaction on DDL, so they are always created in a transaction
+ * of their own, before the write that needs them.
+ */
+@Component
+@Profile("!cache-only")
+public class RunPartitions {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // Partition columns on H2; PostgreSQL partitions take theirs from the run table
+    private static final String H2_COLUMNS = """
+            id INT PRIMARY KEY,
+            title VARCHAR(255),
+            started_on TIMESTAMP NOT NULL,
+            completed_on TIMESTAMP,
+            miles INT,
+            location SMALLINT NOT NULL,
+            duration_seconds BIGINT NOT NULL,
+            pace DOUBLE PRECISION NOT NULL,
+            version BIGINT NOT NULL DEFAULT 0""";
+
+    private final JdbcClient jdbcClient;
+    private final TransactionTemplate newTransactionTemplate;
+
+    /**
+     * Constructor injection of the JDBC client and the transaction template, from whose transaction manager
+     * partitions are created and dropped in transactions of their own.
+     */
+    public RunPartitions(JdbcClient jdbcClient, TransactionTemplate transactionTemplate) {
+        this.jdbcClient = jdbcClient;
+        this.newTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Returns the name of the partition table for runs started in the given month.
+     */
+    public static String table(YearMonth month) {
+        return "run_partitions.run_p" + SUFFIX.format(month);
+    }
+
+    /**
+     * Returns the name of the partition table for a run started at the given time.
+     */
+    public static String table(LocalDateTime startedOn) {
+        return table(YearMonth.from(startedOn));
+    }
+
+    /**
+     * Creates the partitions missing for the given start times.
+     * Must be called before the transaction of the write that needs them; if a transaction is active already,
+     * they are created in a new one.
+     */
+    public void ensure(Collection<LocalDateTime> startedOn) {
+        var months = new TreeSet<LocalDate>();
+        startedOn.forEach(time -> months.add(time.toLocalDate().withDayOfMonth(1)));
+        if (months.isEmpty()) {
+            return;
+        }
+        months.removeAll(jdbcClient.sql("SELECT first_day FROM run_month WHERE first_day IN (:months)")
+                .param("months", months)
+                .query(LocalDate.class)
+                .list());
+        for (LocalDate month : months) {
+            newTransactionTemplate.executeWithoutResult(status -> jdbcClient.sql("SELECT create_run_partition(:month)")
+                    .param("month", month)
+                    .query(String.class)
+                    .single());
+        }
+    }
+
+    /**
+     * Returns the months that have a partition and started before the given date, oldest first.
+     */
+    public List<YearMonth> before(LocalDate date) {
+        return jdbcClient.sql("SELECT first_day FROM run_month WHERE first_day < :date ORDER BY first_day")
+                .param("date", date)
+                .query(LocalDate.class)
+                .list()
+                .stream()
+                .map(YearMonth::from)
+                .toList();
+    }
+
+    /**
+     * Returns the table (or derived table) to select from for runs started within [from, to): the union of the
+     * partitions overlapping that range, so reads skip every other month on H2 as they do on PostgreSQL.
+     * Either bound may be null; without bounds, or without a partition in range, that is the run table itself.
+     */
+    public String source(LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return "run";
+        }
+        List<String> conditions = new ArrayList<>();
+        if (from != null) {
+            conditions.add("first_day >= :from");
+        }
+        if (to != null) {
+            conditions.add("first_day < :to");
+        }
+        var statement = jdbcClient.sql("SELECT table_name FROM run_month WHERE " + String.join(" AND ", conditions) + " ORDER BY first_day");
+        if (from != null) {
+            statement = statement.param("from", from.toLocalDate().withDayOfMonth(1));
+        }
+        if (to != null) {
+            statement = statement.param("to", to);
+        }
+        List<String> tables = statement.query(String.class).list();
+
+        return switch (tables.size()) {
+            case 0 -> "run";
+            case 1 -> tables.get(0);
+            default -> tables.stream()
+                    .map(table -> "SELECT * FROM " + table)
+                    .reduce((left, right) -> left + " UNION ALL " + right)
+                    .map(union -> "(" + union + ") run")
+                    .orElseThrow();
+        };
+    }
+
+    /**
+     * Drops the partition of the given month if it holds no runs, in a transaction of its own.
+     * @return Whether the partition was dropped.
+     */
+    public boolean drop(YearMonth month) {
+        return Boolean.TRUE.equals(newTransactionTemplate.execute(status -> jdbcClient.sql("SELECT drop_run_partition(:month)")
+                .param("month", month.atDay(1))
+                .query(Boolean.class)
+                .single()));
+    }
+
+    /**
+     * H2 implementation of create_run_partition (see schema.sql): creates the table of the month starting
+     * on the given day with its indexes, unless it exists, and adds it to the run view.
+     * Synchronized, so concurrent calls do not recreate the view from different lists of partitions.
+     * @return The name of the partition table.
+     */
+    public static synchronized String createPartition(Connection connection, LocalDate firstDay) throws SQLException {
+        String table = table(YearMonth.from(firstDay));
+        try (Statement statement = connection.createStatement()) {
+            if (!hasPartition(statement, firstDay)) {
+                statement.execute("CREATE TABLE " + table + " (" + H2_COLUMNS + ", CHECK (started_on >= TIMESTAMP '" + firstDay
+                        + " 00:00:00' AND started_on < TIMESTAMP '" + firstDay.plusMonths(1) + " 00:00:00'))");
+                statement.execute("CREATE INDEX " + table + "_location_started_on_idx ON " + table + " (location, started_on)");
+                statement.execute("CREATE INDEX " + table + "_started_on_idx ON " + table + " (started_on)");
+                statement.execute("CREATE INDEX " + table + "_pace_idx ON " + table + " (pace, id)");
+                statement.execute("INSERT INTO run_month (first_day, table_name) VALUES (DATE '" + firstDay + "', '" + table + "')");
+                createView(statement);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * H2 implementation of drop_run_partition (see schema.sql): drops the table of the month starting on the given day
+     * and removes it from the run view, unless it holds runs.
+     * @return Whether the partition was dropped.
+     */
+    public static synchronized boolean dropPartition(Connection connection, LocalDate firstDay) throws SQLException {
+        String table = table(YearMonth.from(firstDay));
+        try (Statement statement = connection.createStatement()) {
+            if (!hasPartition(statement, firstDay)) {
+                return false;
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT EXISTS (SELECT 1 FROM " + table + ")")) {
+                rs.next();
+                if (rs.getBoolean(1)) {
+                    return false;
+                }
+            }
+            statement.execute("DELETE FROM run_month WHERE first_day = DATE '" + firstDay + "'");
+            createView(statement);
+            statement.execute("DROP TABLE " + table);
+        }
+        return true;
+    }
+
+    private static boolean hasPartition(Statement statement, LocalDate firstDay) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM run_month WHERE first_day = DATE '" + firstDay + "'")) {
+            rs.next();
+            return rs.getInt(1) > 0;
+        }
+    }
+
+    /**
+     * Recreates the run view as the union of run_template, which holds no rows, and every partition in run_month.
+     */
+    private static void createView(Statement statement) throws SQLException {
+        var view = new StringBuilder("CREATE OR REPLACE VIEW run AS SELECT * FROM run_template");
+        try (ResultSet rs = statement.executeQuery("SELECT table_name FROM run_month ORDER BY first_day")) {
+            while (rs.next()) {
+                view.append(" UNION ALL SELECT * FROM ").append(rs.getString(1));
+            }
+        }
+        statement.execute(view.toString());
+    }
+}
@@ -1,7 +1,10 @@
 package devdarvegga.runnerz.run;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Abstraction for data access operations related to Run entities.
@@ -15,6 +18,48 @@ public interface RunRepository {
      */
     List<Run> findAll();
 
+    /**
+     * Retrieves one page of runs ordered by ID (keyset pagination).
+     * @param after Only runs with an ID greater than this are returned; null starts from the beginning.
+     * @param limit Maximum number of runs to return.
+     * @return Up to limit runs, ordered by ID.
+     */
+    List<Run> findAll(Integer after, int limit);
+
+    /**
+     * Passes every run, ordered by ID, to the given consumer without holding them all in memory.
+     * @param action Callback invoked once per run.
+     */
+    void streamAll(Consumer<Run> action);
+
+    /**
+     * Passes every run that started within a time range, ordered by start time, to the given consumer
+     * without holding them all in memory.
+     * @param from Earliest start time (inclusive), or null for no lower bound.
+     * @param to Latest start time (exclusive), or null for no upper bound.
+     * @param action Callback invoked once per run.
+     */
+    void streamAll(LocalDateTime from, LocalDateTime to, Consumer<Run> action);
+
+    /**
+     * Passes every run that started within a time range, ordered by start time, to the given consumer
+     * in batches of primitive columns, for bulk reads that should not materialize a Run per row.
+     * The batch is reused between calls, so the consumer must not keep it.
+     * @param from Earliest start time (inclusive), or null for no lower bound.
+     * @param to Latest start time (exclusive), or null for no upper bound.
+     * @param action Callback invoked once per non-empty batch.
+     */
+    void streamColumns(LocalDateTime from, LocalDateTime to, Consumer<RunColumns> action);
+
+    /**
+     * Passes every run that started within a time range, ordered by start time, to the given consumer
+     * together with its version, for callers that later write back only runs that have not changed since.
+     * @param from Earliest start time (inclusive), or null for no lower bound.
+     * @param to Latest start time (exclusive), or null for no upper bound.
+     * @param action Callback invoked once per run.
+     */
+    void streamVersioned(LocalDateTime from, LocalDateTime to, Consumer<VersionedRun> action);
+
     /**
      * Finds a run by its unique ID.
      * @param id The run's identifier.
@@ -22,6 +67,28 @@ public interface RunRepository {
      */
     Optional<Run> findById(Integer id);
 
+    /**
+     * Finds runs by ID in one round trip.
+     * @param ids The IDs to look up.
+     * @return The runs that exist, in no particular order.
+     */
+    List<Run> findAllById(List<Integer> ids);
+
+    /**
+     * Finds a run by its unique ID together with its version.
+     * The version changes whenever the run is created or updated, so it can back an HTTP ETag.
+     * @param id The run's identifier.
+     * @return Optional containing the run and its version if found, or empty if not.
+     */
+    Optional<VersionedRun> findVersionedById(Integer id);
+
+    /**
+     * Returns the version of the data source as a whole.
+     * It changes on every create, update or delete, so it can back ETags of collection responses.
+     * @return Current version of the run collection.
+     */
+    long version();
+
     /**
      * Persists a new run to the data source.
      * @param run The run to create.
@@ -47,12 +114,43 @@ public interface RunRepository {
      */
     int count();
 
+    /**
+     * Returns a cached number of runs for callers that can tolerate staleness.
+     * Cheaper than count() because it does not have to hit the data source on every call.
+     * @return Integer count of runs, possibly out of date.
+     */
+    int approximateCount();
+
     /**
      * Saves a batch of runs to the data source.
      * Typically used for bulk inserts or initial seeding.
+     * Implementations may write in chunks and report chunks that failed.
      * @param runs List of runs to save.
+     * @return Number of runs saved and any chunks that were rolled back.
+     */
+    BatchResult saveAll(List<Run> runs);
+
+    /**
+     * Creates or replaces each run by ID.
+     * Implementations may write in chunks; a chunk that fails is rolled back and all its items reported as FAILED.
+     * @param runs Runs to write; IDs must be unique within the list.
+     * @return One item per run, in the same order, with status CREATED, UPDATED or FAILED.
+     */
+    List<BulkResult.Item> upsertAll(List<Run> runs);
+
+    /**
+     * Deletes runs by ID.
+     * @param ids IDs of the runs to delete.
+     * @return One item per ID, in the same order, with status DELETED, NOT_FOUND or FAILED.
      */
-    void saveAll(List<Run> runs);
+    List<BulkResult.Item> deleteAll(List<Integer> ids);
+
+    /**
+     * Deletes runs by ID, each only if it is still at the given version.
+     * @param versions Version each run was read at, by ID.
+     * @return One item per ID, in iteration order, with status DELETED, CONFLICT (changed or deleted since) or FAILED.
+     */
+    List<BulkResult.Item> deleteAllUnchanged(Map<Integer, Long> versions);
 
     /**
      * Finds all runs that match a given location.
@@ -60,4 +158,33 @@ public interface RunRepository {
      * @return List of runs matching the location.
      */
     List<Run> findByLocation(String location);
-}
\ No newline at end of file
+
+    /**
+     * Finds runs at a location that started within a time range, ordered by start time.
+     * @param location The location to match.
+     * @param from Earliest start time (inclusive), or null for no lower bound.
+     * @param to Latest start time (exclusive), or null for no upper bound.
+     * @return List of matching runs.
+     */
+    List<Run> findByLocation(Location location, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Finds the fastest runs, optionally limited to a pace range.
+     * @param minPace Lowest pace in minutes per mile (inclusive), or null for no lower bound.
+     * @param maxPace Highest pace in minutes per mile (inclusive), or null for no upper bound.
+     * @param limit Maximum number of runs to return.
+     * @return Up to limit runs ordered by pace (fastest first), then by ID.
+     */
+    List<Run> findByPace(Double minPace, Double maxPace, int limit);
+
+    /**
+     * Computes totals, average pace and pace percentiles for runs, grouped as requested.
+     * With no grouping a single row of totals is returned.
+     * @param byLocation Whether to group by location.
+     * @param period Time bucket to group by, or null for no time grouping.
+     * @param from Earliest start time (inclusive), or null for no lower bound.
+     * @param to Latest start time (exclusive), or null for no upper bound.
+     * @return One RunStats per group, ordered by location and period.
+     */
+    List<RunStats> findStats(boolean byLocation, RunStats.Period period, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,247 @@
+package devdarvegga.runnerz.run;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of serialized response bodies for hot run collections (GET /api/runs and GET /api/runs/search?location=),
+ * enabled with runnerz.response-cache.enabled=true in the servlet application.
+ *
+ * A hit is answered from stored bytes: no database query, no Jackson serialization and, for clients accepting gzip,
+ * no compression either, since bodies of at least server.compression.min-response-size are stored gzipped.
+ * Bodies are kept per query and negotiated format (JSON, Smile or CBOR, picked from the Accept header the way
+ * Spring MVC picks a converter) together with the collection version they were read at. Their ETag is that version
+ * with the format, as for uncached responses, and gzipped bodies served as such have an ETag of their own.
+ *
+ * Every write through the RunRepository bean clears the cache (see InvalidatingRunRepository). Entries are keyed by
+ * a generation that each clear advances, so a body read before a concurrent write is filed under the old generation
+ * and never served. Writes made by other processes are only seen once entries expire, runnerz.response-cache.ttl
+ * after being stored. Stored bytes are bounded to runnerz.response-cache.max-size.
+ *
+ * Hit and miss counts are published as the cache.* meters tagged cache=run-responses.
+ */
+@Component
+@ConditionalOnProperty(value = "runnerz.response-cache.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RunResponseCache {
+
+    private static final TypeReference<List<Run>> RUN_LIST = new TypeReference<>() {
+    };
+
+    private final Map<MediaType, ObjectWriter> writers = new LinkedHashMap<>();
+    private final ContentNegotiationManager contentNegotiationManager;
+    private final int compressionThreshold;
+    private final Cache<Key, Body> bodies;
+    private final AtomicLong generation = new AtomicLong();
+
+    private record Key(String query, MediaType contentType, long generation) {
+    }
+
+    private record Body(long version, byte[] bytes, boolean gzipped) {
+    }
+
+    /**
+     * Constructor injection of the application's message converters (for the formats and their ObjectMappers),
+     * MVC's content negotiation and the settings from runnerz.response-cache.*.
+     */
+    public RunResponseCache(HttpMessageConverters converters,
+                            ContentNegotiationManager mvcContentNegotiationManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${runnerz.response-cache.max-size:64MB}") DataSize maxSize,
+                            @Value("${runnerz.response-cache.ttl:1m}") Duration ttl,
+                            @Value("${server.compression.min-response-size:2KB}") DataSize compressionThreshold) {
+        Assert.isTrue(maxSize.toBytes() > 0, "runnerz.response-cache.max-size must be positive");
+        converters.getConverters().stream()
+                .filter(AbstractJackson2HttpMessageConverter.class::isInstance)
+                .map(AbstractJackson2HttpMessageConverter.class::cast)
+                .forEach(converter -> converter.getSupportedMediaTypes().stream()
+                        .filter(MediaType::isConcrete)
+                        .forEach(type -> writers.putIfAbsent(type, converter.getObjectMapper().writerFor(RUN_LIST))));
+        this.contentNegotiationManager = mvcContentNegotiationManager;
+        this.compressionThreshold = Math.toIntExact(compressionThreshold.toBytes());
+        this.bodies = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, Body body) -> body.bytes().length)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, bodies, "run-responses");
+    }
+
+    /**
+     * Answers a request for a run collection, identified by query, from the cache if present.
+     * On a miss the version is read before the runs, as for uncached collection ETags,
+     * and 304 Not Modified is answered without loading the runs when If-None-Match matches it.
+     *
+     * @param query Normalized query, identifying the collection among cached ones
+     * @param version Reads the current collection version
+     * @param runs Loads the runs on a miss
+     * @return The response, with an ETag for Spring MVC to answer 304 Not Modified on a hit,
+     *         or null when 304 Not Modified has been answered on a miss
+     */
+    public ResponseEntity<byte[]> respond(String query, NativeWebRequest request, LongSupplier version, Supplier<List<Run>> runs)
+            throws HttpMediaTypeNotAcceptableException {
+        MediaType contentType = negotiate(request);
+        boolean acceptsGzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        Key key = new Key(query, contentType, generation.get());
+        Body body = bodies.getIfPresent(key);
+        if (body == null) {
+            // Whether the body is stored gzipped is only known once it is serialized, so either ETag is current
+            long current = version.getAsLong();
+            String eTag = RunController.weakETag(current, contentType);
+            String held = listedETag(request, acceptsGzip ? List.of(gzipETag(eTag), eTag) : List.of(eTag));
+            if (held != null && request.checkNotModified(held)) {
+                return null;
+            }
+            body = serialize(current, contentType, runs.get());
+            bodies.put(key, body);
+        }
+
+        // Spring MVC answers 304 Not Modified for a matching If-None-Match before the body is written
+        String eTag = RunController.weakETag(body.version(), contentType);
+        var response = ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!body.gzipped()) {
+            return response.eTag(eTag).body(body.bytes());
+        }
+        if (acceptsGzip) {
+            return response.eTag(gzipETag(eTag)).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.bytes());
+        }
+        return response.eTag(eTag).body(gunzip(body.bytes()));
+    }
+
+    /**
+     * Drops every cached body. Called after each write to the repository.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        bodies.invalidateAll();
+    }
+
+    /**
+     * Picks the first format compatible with the most preferred acceptable media type, JSON first for wildcards.
+     */
+    private MediaType negotiate(NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        for (MediaType acceptable : contentNegotiationManager.resolveMediaTypes(request)) {
+            for (MediaType format : writers.keySet()) {
+                if (acceptable.isCompatibleWith(format)) {
+                    return format;
+                }
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(new ArrayList<>(writers.keySet()));
+    }
+
+    private Body serialize(long version, MediaType contentType, List<Run> runs) {
+        try {
+            byte[] bytes = writers.get(contentType).writeValueAsBytes(runs);
+            if (bytes.length < compressionThreshold) {
+                return new Body(version, bytes, false);
+            }
+            var gzipped = new ByteArrayOutputStream(bytes.length / 4);
+            try (var out = new GZIPOutputStream(gzipped)) {
+                out.write(bytes);
+            }
+            return new Body(version, gzipped.toByteArray(), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * ETag of the gzipped body, which differs from the identity body it encodes.
+     */
+    static String gzipETag(String eTag) {
+        return eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * Returns the first of the given ETags that If-None-Match lists, compared weakly, or null if it lists none.
+     */
+    private static String listedETag(NativeWebRequest request, List<String> eTags) {
+        String[] ifNoneMatch = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        for (String eTag : eTags) {
+            for (String header : ifNoneMatch) {
+                for (String listed : header.split(",")) {
+                    listed = listed.trim();
+                    if (listed.equals("*") || opaque(listed).equals(opaque(eTag))) {
+                        return eTag;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String opaque(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    private static byte[] gunzip(byte[] gzipped) {
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Whether an Accept-Encoding header lists gzip (or *) without q=0.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim().replace(" ", "");
+                    if (parameter.matches("q=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,16 @@
+package devdarvegga.runnerz.run;
+
+import java.util.List;
+
+/**
+ * One page of full-text search results, best match first.
+ * total is the number of matching runs across all pages.
+ */
+public record RunSearchResult(int total, List<Hit> hits) {
+
+    /**
+     * A matching run with its relevance score (higher is better).
+     */
+    public record Hit(Run run, double score) {
+    }
+}
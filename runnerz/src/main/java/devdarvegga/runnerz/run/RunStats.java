@@ -0,0 +1,38 @@
+package devdarvegga.runnerz.run;
+
+import java.time.LocalDate;
+
+/**
+ * Aggregated statistics for a group of runs, computed in the database.
+ * Pace is expressed in minutes per mile, like Run.getAvgPace().
+ *
+ * @param location   Location of the group, or null when not grouped by location.
+ * @param period     First day of the group's period, or null when not grouped by time.
+ * @param runs       Number of runs in the group.
+ * @param miles      Total distance in miles.
+ * @param minutes    Total duration in minutes.
+ * @param avgPace    Distance-weighted average pace (total minutes / total miles).
+ * @param medianPace Median of the per-run paces.
+ * @param p90Pace    90th percentile of the per-run paces.
+ */
+public record RunStats(
+        Location location,
+        LocalDate period,
+        long runs,
+        long miles,
+        double minutes,
+        double avgPace,
+        double medianPace,
+        double p90Pace
+) {
+
+    /**
+     * Time buckets that statistics can be grouped by.
+     * Weeks start on Monday.
+     */
+    public enum Period {
+        DAY,
+        WEEK,
+        MONTH
+    }
+}
@@ -0,0 +1,306 @@
+package devdarvegga.runnerz.run;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over run titles for full-text search.
+ *
+ * Titles are split into lower-case words (runs of letters and digits). Every indexed title gets a dense
+ * internal document number, and each word maps to a posting list of the document numbers containing it,
+ * with the number of occurrences, held in primitive arrays. A query walks only the posting lists of its
+ * words, merging them in document order, so its cost depends on the number of matches rather than the
+ * number of runs. Matches are ranked with BM25, which favours runs matching more (and rarer) query words
+ * and shorter titles.
+ *
+ * New documents get increasing numbers, so posting lists only ever grow by appending. Updating or removing
+ * a run marks its old document dead instead of editing the lists; once dead documents outnumber live ones
+ * the lists are compacted. A read-write lock keeps each update atomic; searches run concurrently.
+ *
+ * Kept current by IndexingRunRepository on every write, and rebuilt from the repository at startup.
+ */
+@Component
+public class RunTitleIndex {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // BM25 term-frequency saturation and length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Dead documents tolerated before compacting, as long as they are not outnumbered by live ones
+    private static final int MIN_DEAD_TO_COMPACT = 1024;
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score).reversed().thenComparingInt(Hit::id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Integer, Integer> documentsByRunId = new HashMap<>();
+    // Per document number: the run ID and the title length in words, or -1 once the document is dead
+    private int[] runIds = new int[1024];
+    private int[] lengths = new int[1024];
+    private int documentCount;
+    private int deadCount;
+    private long totalLength;
+
+    /**
+     * A matching run ID and its relevance score.
+     */
+    public record Hit(int id, double score) {
+    }
+
+    /**
+     * One page of ranked hits and the total number of matching runs.
+     */
+    public record Page(int total, List<Hit> hits) {
+    }
+
+    /**
+     * Document numbers containing one word, in increasing order, with the word's frequency in each.
+     */
+    private static final class PostingList {
+
+        int[] documents = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+
+    /**
+     * Adds a run to the index, replacing any earlier title indexed for its ID.
+     */
+    public void put(Run run) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(run.id());
+            addDocument(run);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a run from the index; does nothing if it is not indexed.
+     */
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the index contents with every run in the repository.
+     * Updates from concurrent writes wait for the rebuild and are applied after it, so none are lost.
+     */
+    public void rebuild(RunRepository runRepository) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentsByRunId.clear();
+            documentCount = 0;
+            deadCount = 0;
+            totalLength = 0;
+            runRepository.streamAll(this::addDocument);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed runs.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentsByRunId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds runs whose title contains any word of the query, best match first (ties by ID).
+     * Only the top offset + limit hits (or all matches, if fewer) are kept while scoring.
+     */
+    public Page search(String query, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>();
+            for (String word : Arrays.stream(words(query)).distinct().toList()) {
+                PostingList list = postings.get(word);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            int live = documentsByRunId.size();
+            if (lists.isEmpty() || live == 0) {
+                return new Page(0, List.of());
+            }
+
+            double averageLength = (double) totalLength / live;
+            double[] idf = new double[lists.size()];
+            long candidates = 0;
+            for (int i = 0; i < lists.size(); i++) {
+                int matches = liveCount(lists.get(i));
+                idf[i] = Math.log(1 + (live - matches + 0.5) / (matches + 0.5));
+                candidates += matches;
+            }
+
+            // No more hits can be kept than there are matching documents
+            int keep = (int) Math.min((long) offset + limit, Math.min(candidates, live));
+            PriorityQueue<Hit> top = new PriorityQueue<>(keep + 1, RANKING.reversed());
+            int total = 0;
+            int[] positions = new int[lists.size()];
+            while (true) {
+                // Next document number present in any list, skipping dead documents
+                int document = Integer.MAX_VALUE;
+                for (int i = 0; i < lists.size(); i++) {
+                    PostingList list = lists.get(i);
+                    while (positions[i] < list.size && lengths[list.documents[positions[i]]] < 0) {
+                        positions[i]++;
+                    }
+                    if (positions[i] < list.size) {
+                        document = Math.min(document, list.documents[positions[i]]);
+                    }
+                }
+                if (document == Integer.MAX_VALUE) {
+                    break;
+                }
+
+                double norm = K1 * (1 - B + B * lengths[document] / averageLength);
+                double score = 0;
+                for (int i = 0; i < lists.size(); i++) {
+                    PostingList list = lists.get(i);
+                    if (positions[i] < list.size && list.documents[positions[i]] == document) {
+                        int frequency = list.frequencies[positions[i]++];
+                        score += idf[i] * frequency * (K1 + 1) / (frequency + norm);
+                    }
+                }
+                total++;
+                if (top.size() < keep || score > top.peek().score()) {
+                    top.add(new Hit(runIds[document], score));
+                    if (top.size() > keep) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Hit> ranked = new ArrayList<>(top);
+            ranked.sort(RANKING);
+            return new Page(total, ranked.subList(Math.min(offset, ranked.size()), ranked.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int liveCount(PostingList list) {
+        int count = 0;
+        for (int i = 0; i < list.size; i++) {
+            if (lengths[list.documents[i]] >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void addDocument(Run run) {
+        String[] words = words(run.title());
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String word : words) {
+            frequencies.merge(word, 1, Integer::sum);
+        }
+
+        if (documentCount == runIds.length) {
+            runIds = Arrays.copyOf(runIds, documentCount * 2);
+            lengths = Arrays.copyOf(lengths, documentCount * 2);
+        }
+        int document = documentCount++;
+        runIds[document] = run.id();
+        lengths[document] = words.length;
+        frequencies.forEach((word, frequency) -> postings.computeIfAbsent(word, w -> new PostingList()).add(document, frequency));
+        documentsByRunId.put(run.id(), document);
+        totalLength += words.length;
+    }
+
+    private void removeDocument(Integer id) {
+        Integer document = documentsByRunId.remove(id);
+        if (document == null) {
+            return;
+        }
+        totalLength -= lengths[document];
+        lengths[document] = -1;
+        deadCount++;
+    }
+
+    /**
+     * Drops dead documents from every posting list and renumbers the live ones, keeping their order.
+     */
+    private void compactIfNeeded() {
+        if (deadCount < MIN_DEAD_TO_COMPACT || deadCount < documentCount - deadCount) {
+            return;
+        }
+        int[] renumbered = new int[documentCount];
+        int live = 0;
+        for (int document = 0; document < documentCount; document++) {
+            if (lengths[document] >= 0) {
+                renumbered[document] = live;
+                runIds[live] = runIds[document];
+                lengths[live] = lengths[document];
+                documentsByRunId.put(runIds[live], live);
+                live++;
+            } else {
+                renumbered[document] = -1;
+            }
+        }
+        documentCount = live;
+        deadCount = 0;
+
+        postings.values().removeIf(list -> {
+            int size = 0;
+            for (int i = 0; i < list.size; i++) {
+                int document = renumbered[list.documents[i]];
+                if (document >= 0) {
+                    list.documents[size] = document;
+                    list.frequencies[size] = list.frequencies[i];
+                    size++;
+                }
+            }
+            list.size = size;
+            return size == 0;
+        });
+    }
+
+    private static String[] words(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        return Arrays.stream(SEPARATORS.split(text.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+    }
+}
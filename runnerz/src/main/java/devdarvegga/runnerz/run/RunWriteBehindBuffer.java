@@ -0,0 +1,196 @@
+package devdarvegga.runnerz.run;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for new runs, enabled with runnerz.write-behind.enabled=true.
+ *
+ * RunController hands accepted runs to a bounded in-memory queue instead of inserting them
+ * synchronously. A single flusher thread drains the queue into RunRepository.saveAll() whenever
+ * batch-size runs are waiting or flush-interval has passed since the first waiting run arrived.
+ * When the queue is full, offer() returns false so the caller can push back (429).
+ *
+ * Stopped after the web server during shutdown, so runs accepted before shutdown are flushed.
+ * Publishes runnerz.write_behind.* metrics: queue depth, flush latency, rejected and failed runs.
+ */
+@Component
+@ConditionalOnProperty(value = "runnerz.write-behind.enabled", havingValue = "true")
+public class RunWriteBehindBuffer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RunWriteBehindBuffer.class);
+
+    /**
+     * Queued by stop() to wake the flusher from its wait for the next run; never written.
+     */
+    private static final Run WAKE_UP = new Run(null, "", LocalDateTime.MIN, LocalDateTime.MIN.plusSeconds(1), 1, Location.OUTDOOR);
+
+    private final RunRepository runRepository;
+    private final BlockingQueue<Run> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+
+    private final Timer flushTimer;
+    private final Counter rejected;
+    private final Counter failed;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * Constructor injection of the repository and the buffer settings from runnerz.write-behind.*.
+     * Metrics go to the application's MeterRegistry when one is configured, otherwise to the global registry.
+     */
+    public RunWriteBehindBuffer(RunRepository runRepository,
+                                ObjectProvider<MeterRegistry> meterRegistry,
+                                @Value("${runnerz.write-behind.capacity:10000}") int capacity,
+                                @Value("${runnerz.write-behind.batch-size:500}") int batchSize,
+                                @Value("${runnerz.write-behind.flush-interval:200ms}") Duration flushInterval) {
+        Assert.isTrue(capacity > 0, "runnerz.write-behind.capacity must be positive");
+        Assert.isTrue(batchSize > 0, "runnerz.write-behind.batch-size must be positive");
+        this.runRepository = runRepository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        Gauge.builder("runnerz.write_behind.queue.depth", queue, BlockingQueue::size)
+                .description("Runs waiting to be written")
+                .register(registry);
+        this.flushTimer = Timer.builder("runnerz.write_behind.flush")
+                .description("Time to write one batch of buffered runs")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.rejected = Counter.builder("runnerz.write_behind.rejected")
+                .description("Runs rejected because the buffer was full")
+                .register(registry);
+        this.failed = Counter.builder("runnerz.write_behind.failed")
+                .description("Buffered runs that could not be written")
+                .register(registry);
+    }
+
+    /**
+     * Queues a run for writing without blocking.
+     * @return false if the buffer is full or shutting down and the run was not accepted.
+     */
+    public boolean offer(Run run) {
+        if (running && queue.offer(run)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Returns the number of runs waiting to be written.
+     */
+    public int depth() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().name("run-write-behind").start(this::flushLoop);
+    }
+
+    /**
+     * Stops accepting runs and waits for the flusher to write everything still queued.
+     * The flusher is woken right away rather than after its flush interval; if the queue is full
+     * there is no room for the wake-up, but then the flusher is not waiting either.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        queue.offer(WAKE_UP);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Write-behind buffer stopped; {} run(s) left unwritten.", queue.size());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before and stops after the web server (which uses DEFAULT_PHASE - 2048),
+     * so no request can be accepted while the buffer is not draining.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Collects batches of up to batchSize runs, waiting at most flushInterval after the first run of a batch.
+     * Keeps draining after stop() until the queue is empty, then without waiting for batches to fill.
+     */
+    private void flushLoop() {
+        List<Run> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Run first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null || first == WAKE_UP) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Run next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null || next == WAKE_UP) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                batch.removeIf(run -> run == WAKE_UP);
+            } catch (InterruptedException e) {
+                // This thread belongs to the buffer; keep draining, stop() ends the loop once the queue is empty
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Run> batch) {
+        try {
+            BatchResult result = flushTimer.recordCallable(() -> runRepository.saveAll(List.copyOf(batch)));
+            if (result.hasFailures()) {
+                failed.increment(batch.size() - result.saved());
+                log.error("Failed to write {} of {} buffered runs: {}", batch.size() - result.saved(), batch.size(), result.failures());
+            }
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            log.error("Failed to write {} buffered runs (ids {}..{})", batch.size(), batch.get(0).id(), batch.get(batch.size() - 1).id(), e);
+        }
+    }
+}
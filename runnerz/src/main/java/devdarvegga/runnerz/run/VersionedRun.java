@@ -0,0 +1,11 @@
+package devdarvegga.runnerz.run;
+
+/**
+ * A run together with the version it was read at.
+ * Versions are assigned by the repository on create and update and never reused.
+ *
+ * @param run     The run.
+ * @param version Version of the run's current state.
+ */
+public record VersionedRun(Run run, long version) {
+}
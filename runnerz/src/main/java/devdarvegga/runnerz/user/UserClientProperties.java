@@ -0,0 +1,25 @@
+package devdarvegga.runnerz.user;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for UserRestClient, bound from runnerz.users.* properties.
+ *
+ * @param baseUrl        Base URL of the user API.
+ * @param connectTimeout Maximum time to establish a connection.
+ * @param readTimeout    Maximum time to wait for a response.
+ * @param cacheTtl       How long fetched users are served from the local cache.
+ * @param cacheMaxSize   Maximum number of users kept in the local cache.
+ */
+@ConfigurationProperties("runnerz.users")
+public record UserClientProperties(
+        @DefaultValue("https://jsonplaceholder.typicode.com/") String baseUrl,
+        @DefaultValue("2s") Duration connectTimeout,
+        @DefaultValue("5s") Duration readTimeout,
+        @DefaultValue("10m") Duration cacheTtl,
+        @DefaultValue("1000") long cacheMaxSize
+) {
+}
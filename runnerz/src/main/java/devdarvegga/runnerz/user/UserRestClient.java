@@ -1,52 +1,121 @@
 package devdarvegga.runnerz.user;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.client.ClientHttpRequestFactories;
+import org.springframework.boot.web.client.ClientHttpRequestFactorySettings;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * REST client for accessing user data from an external API.
  * Uses Spring's RestClient to interact with https://jsonplaceholder.typicode.com/users.
  *
+ * Responses are kept in a local cache bounded by size and TTL (runnerz.users.*).
+ * Concurrent requests for the same user, or for the full list, share a single remote call.
+ *
  * This component is useful for mocking external user data in development or testing scenarios.
  */
 @Component
 public class UserRestClient {
 
+    private static final String ALL_USERS = "all";
+
     private final RestClient restClient;
+    private final AsyncLoadingCache<Integer, User> usersById;
+    private final AsyncLoadingCache<String, List<User>> allUsers;
 
     /**
-     * Constructor that builds a RestClient with a predefined base URL.
-     * Uses RestClient.Builder for flexible configuration.
+     * Constructor that builds a RestClient with the configured base URL and timeouts.
+     * Remote calls for cache misses run on the given executor (the application task executor).
      */
-    public UserRestClient(RestClient.Builder builder) {
+    public UserRestClient(RestClient.Builder builder,
+                          UserClientProperties properties,
+                          @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor) {
         this.restClient = builder
-                .baseUrl("https://jsonplaceholder.typicode.com/")
+                .baseUrl(properties.baseUrl())
+                .requestFactory(ClientHttpRequestFactories.get(ClientHttpRequestFactorySettings.DEFAULTS
+                        .withConnectTimeout(properties.connectTimeout())
+                        .withReadTimeout(properties.readTimeout())))
                 .build();
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(properties.cacheMaxSize())
+                .expireAfterWrite(properties.cacheTtl())
+                .executor(executor)
+                .buildAsync(this::fetchById);
+        this.allUsers = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(properties.cacheTtl())
+                .executor(executor)
+                .buildAsync(key -> fetchAll());
     }
 
     /**
-     * Fetches all users from the external API.
+     * Fetches all users, from the cache when possible.
      * @return List of User objects.
      */
     public List<User> findAll() {
-        return restClient.get()
-                .uri("/users")
-                .retrieve()
-                .body(new ParameterizedTypeReference<List<User>>() {});
+        return join(allUsers.get(ALL_USERS));
     }
 
     /**
-     * Fetches a single user by ID from the external API.
+     * Fetches a single user by ID, from the cache when possible.
      * @param id The user's ID.
      * @return A User object.
      */
     public User findById(Integer id) {
+        return join(usersById.get(id));
+    }
+
+    /**
+     * Starts loading all users into the cache in the background.
+     * @return Future completed with the users, or exceptionally if the API could not be reached.
+     */
+    public CompletableFuture<List<User>> prefetch() {
+        return allUsers.get(ALL_USERS);
+    }
+
+    /**
+     * Calls GET /users and seeds the per-user cache with the result.
+     */
+    private List<User> fetchAll() {
+        List<User> users = restClient.get()
+                .uri("/users")
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<User>>() {});
+        users.forEach(user -> usersById.put(user.id(), CompletableFuture.completedFuture(user)));
+        return users;
+    }
+
+    /**
+     * Calls GET /users/{id}.
+     */
+    private User fetchById(Integer id) {
         return restClient.get()
                 .uri("/users/{id}", id)
                 .retrieve()
                 .body(User.class);
     }
-}
\ No newline at end of file
+
+    /**
+     * Waits for a cache load, rethrowing the original failure (e.g. a RestClientException) unwrapped.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,13 +1,18 @@
-DELETE FROM run;
+-- Runs are written to the partition of their month (see schema.sql), and their IDs with that month to run_id
+SELECT create_run_partition(DATE '2024-02-01');
 
-INSERT INTO run (id, title, started_on, completed_on, miles, location) VALUES
-                                                                           (1, 'Run 1', '2024-02-20 06:00:00', '2024-02-20 07:00:00', 5, 'INDOOR'),
-                                                                           (2, 'Run 2', '2024-02-21 06:00:00', '2024-02-21 07:00:00', 6, 'OUTDOOR'),
-                                                                           (3, 'Run 3', '2024-02-22 06:00:00', '2024-02-22 07:00:00', 7, 'INDOOR'),
-                                                                           (4, 'Run 4', '2024-02-23 06:00:00', '2024-02-23 07:00:00', 8, 'OUTDOOR'),
-                                                                           (5, 'Run 5', '2024-02-24 06:00:00', '2024-02-24 07:00:00', 9, 'INDOOR'),
-                                                                           (6, 'Run 6', '2024-02-25 06:00:00', '2024-02-25 07:00:00', 10, 'OUTDOOR'),
-                                                                           (7, 'Run 7', '2024-02-26 06:00:00', '2024-02-26 07:00:00', 11, 'INDOOR'),
-                                                                           (8, 'Run 8', '2024-02-27 06:00:00', '2024-02-27 07:00:00', 12, 'OUTDOOR'),
-                                                                           (9, 'Run 9', '2024-02-28 06:00:00', '2024-02-28 07:00:00', 13, 'INDOOR'),
-                                                                           (10, 'Run 10', '2024-02-29 06:00:00', '2024-02-29 07:00:00', 14, 'OUTDOOR');
\ No newline at end of file
+-- location: 0 = INDOOR, 1 = OUTDOOR; every run takes an hour, so pace is 60 / miles
+
+INSERT INTO run_partitions.run_p202402 (id, title, started_on, completed_on, miles, location, duration_seconds, pace) VALUES
+                                                                           (1, 'Run 1', '2024-02-20 06:00:00', '2024-02-20 07:00:00', 5, 0, 3600, 60.0 / 5),
+                                                                           (2, 'Run 2', '2024-02-21 06:00:00', '2024-02-21 07:00:00', 6, 1, 3600, 60.0 / 6),
+                                                                           (3, 'Run 3', '2024-02-22 06:00:00', '2024-02-22 07:00:00', 7, 0, 3600, 60.0 / 7),
+                                                                           (4, 'Run 4', '2024-02-23 06:00:00', '2024-02-23 07:00:00', 8, 1, 3600, 60.0 / 8),
+                                                                           (5, 'Run 5', '2024-02-24 06:00:00', '2024-02-24 07:00:00', 9, 0, 3600, 60.0 / 9),
+                                                                           (6, 'Run 6', '2024-02-25 06:00:00', '2024-02-25 07:00:00', 10, 1, 3600, 60.0 / 10),
+                                                                           (7, 'Run 7', '2024-02-26 06:00:00', '2024-02-26 07:00:00', 11, 0, 3600, 60.0 / 11),
+                                                                           (8, 'Run 8', '2024-02-27 06:00:00', '2024-02-27 07:00:00', 12, 1, 3600, 60.0 / 12),
+                                                                           (9, 'Run 9', '2024-02-28 06:00:00', '2024-02-28 07:00:00', 13, 0, 3600, 60.0 / 13),
+                                                                           (10, 'Run 10', '2024-02-29 06:00:00', '2024-02-29 07:00:00', 14, 1, 3600, 60.0 / 14);
+
+INSERT INTO run_id (id, first_day) SELECT id, DATE '2024-02-01' FROM run_partitions.run_p202402
\ No newline at end of file
@@ -0,0 +1,92 @@
+DROP TABLE IF EXISTS run CASCADE;
+DROP SCHEMA IF EXISTS run_partitions CASCADE;
+DROP TABLE IF EXISTS run_month;
+DROP TABLE IF EXISTS run_id;
+DROP TABLE IF EXISTS run_version;
+DROP SEQUENCE IF EXISTS run_version_seq;
+DROP FUNCTION IF EXISTS create_run_partition(DATE);
+DROP FUNCTION IF EXISTS drop_run_partition(DATE);
+
+-- PostgreSQL variant of schema.sql, selected with spring.sql.init.schema-locations=classpath:schema-postgresql.sql.
+-- run is partitioned by month of started_on (see RunPartitions); its partitions, run_pYYYYMM in the run_partitions
+-- schema, are created by create_run_partition on the first write to their month.
+-- The primary key has to include the partition key; run_id keeps IDs unique across partitions.
+CREATE SCHEMA run_partitions;
+
+-- location holds the Location enum ordinal (0 = INDOOR, 1 = OUTDOOR);
+-- version is drawn from run_version_seq by every write that creates or updates the row;
+-- duration_seconds and pace (minutes per mile) are derived from the other columns on every write
+CREATE TABLE run (
+                     id INT NOT NULL,
+                     title VARCHAR(255),
+                     started_on TIMESTAMP NOT NULL,
+                     completed_on TIMESTAMP,
+                     miles INT,
+                     location SMALLINT NOT NULL,
+                     duration_seconds BIGINT NOT NULL,
+                     pace DOUBLE PRECISION NOT NULL,
+                     version BIGINT NOT NULL DEFAULT 0,
+                     PRIMARY KEY (id, started_on)
+) PARTITION BY RANGE (started_on);
+
+-- Created on every partition: location searches (optionally bounded by start time) and date-range reads
+CREATE INDEX run_location_started_on_idx ON run (location, started_on);
+CREATE INDEX run_started_on_idx ON run (started_on);
+-- Fastest runs and pace ranges
+CREATE INDEX run_pace_idx ON run (pace, id);
+
+-- Partitions by the first day of their month
+CREATE TABLE run_month (
+                     first_day DATE PRIMARY KEY,
+                     table_name VARCHAR(64) NOT NULL
+);
+
+-- Function bodies are quoted as plain strings rather than dollar-quoted, which the script runner would split at every semicolon
+CREATE FUNCTION create_run_partition(first_day DATE) RETURNS VARCHAR LANGUAGE plpgsql AS '
+DECLARE
+    partition_name VARCHAR := ''run_partitions.run_p'' || to_char(first_day, ''YYYYMM'');
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext(''run_month''));
+    IF NOT EXISTS (SELECT 1 FROM run_month m WHERE m.first_day = create_run_partition.first_day) THEN
+        EXECUTE format(''CREATE TABLE %s PARTITION OF run FOR VALUES FROM (%L) TO (%L)'',
+                       partition_name, first_day, first_day + INTERVAL ''1 month'');
+        INSERT INTO run_month (first_day, table_name) VALUES (first_day, partition_name);
+    END IF;
+    RETURN partition_name;
+END';
+
+CREATE FUNCTION drop_run_partition(first_day DATE) RETURNS BOOLEAN LANGUAGE plpgsql AS '
+DECLARE
+    partition_name VARCHAR;
+    has_runs BOOLEAN;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext(''run_month''));
+    SELECT m.table_name INTO partition_name FROM run_month m WHERE m.first_day = drop_run_partition.first_day;
+    IF partition_name IS NULL THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format(''LOCK TABLE %s IN ACCESS EXCLUSIVE MODE'', partition_name);
+    EXECUTE format(''SELECT EXISTS (SELECT 1 FROM %s)'', partition_name) INTO has_runs;
+    IF has_runs THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format(''DROP TABLE %s'', partition_name);
+    DELETE FROM run_month m WHERE m.first_day = drop_run_partition.first_day;
+    RETURN TRUE;
+END';
+
+-- Partition month of every run by ID: keeps IDs unique across partitions and locates the partition of a run
+CREATE TABLE run_id (
+                     id INT PRIMARY KEY,
+                     first_day DATE NOT NULL
+);
+
+-- Row versions, backing the ETags of single runs
+CREATE SEQUENCE run_version_seq;
+
+-- Version of the run table as a whole, incremented as the last statement of every write transaction.
+-- Backs the ETags of run collection responses.
+CREATE TABLE run_version (
+                     version BIGINT NOT NULL
+);
+INSERT INTO run_version (version) VALUES (0);
@@ -1,10 +1,57 @@
-DROP TABLE IF EXISTS run;
+DROP VIEW IF EXISTS run;
+DROP SCHEMA IF EXISTS run_partitions CASCADE;
+DROP TABLE IF EXISTS run_template;
+DROP TABLE IF EXISTS run_month;
+DROP TABLE IF EXISTS run_id;
+DROP TABLE IF EXISTS run_version;
+DROP SEQUENCE IF EXISTS run_version_seq;
+DROP ALIAS IF EXISTS create_run_partition;
+DROP ALIAS IF EXISTS drop_run_partition;
 
-CREATE TABLE run (
+-- Runs are partitioned by month of started_on (see RunPartitions). H2 has no partitioned tables, so each month
+-- is a table of its own in the run_partitions schema, run_pYYYYMM, and run is a view of all of them.
+-- schema-postgresql.sql declares the same layout with native partitions.
+CREATE SCHEMA run_partitions;
+
+-- Columns of run, as created in every partition by create_run_partition; holds no rows itself.
+-- location holds the Location enum ordinal (0 = INDOOR, 1 = OUTDOOR);
+-- version is drawn from run_version_seq by every write that creates or updates the row;
+-- duration_seconds and pace (minutes per mile) are derived from the other columns on every write
+CREATE TABLE run_template (
                      id INT PRIMARY KEY,
                      title VARCHAR(255),
-                     started_on TIMESTAMP,
+                     started_on TIMESTAMP NOT NULL,
                      completed_on TIMESTAMP,
                      miles INT,
-                     location VARCHAR(50)
-);
\ No newline at end of file
+                     location SMALLINT NOT NULL,
+                     duration_seconds BIGINT NOT NULL,
+                     pace DOUBLE PRECISION NOT NULL,
+                     version BIGINT NOT NULL DEFAULT 0
+);
+CREATE VIEW run AS SELECT * FROM run_template;
+
+-- Partitions by the first day of their month. Every partition has indexes on (location, started_on),
+-- for location searches optionally bounded by start time, on started_on, for date-range reads,
+-- and on (pace, id), for the fastest runs and pace ranges.
+CREATE TABLE run_month (
+                     first_day DATE PRIMARY KEY,
+                     table_name VARCHAR(64) NOT NULL
+);
+CREATE ALIAS create_run_partition FOR 'devdarvegga.runnerz.run.RunPartitions.createPartition';
+CREATE ALIAS drop_run_partition FOR 'devdarvegga.runnerz.run.RunPartitions.dropPartition';
+
+-- Partition month of every run by ID: keeps IDs unique across partitions and locates the partition of a run
+CREATE TABLE run_id (
+                     id INT PRIMARY KEY,
+                     first_day DATE NOT NULL
+);
+
+-- Row versions, backing the ETags of single runs
+CREATE SEQUENCE run_version_seq;
+
+-- Version of the run table as a whole, incremented as the last statement of every write transaction.
+-- Backs the ETags of run collection responses.
+CREATE TABLE run_version (
+                     version BIGINT NOT NULL
+);
+INSERT INTO run_version (version) VALUES (0);
@@ -0,0 +1,161 @@
+package devdarvegga.runnerz.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for AdmissionControlFilter and its AimdConcurrencyLimit, driven by a manual clock.
+ */
+class AdmissionControlFilterTest {
+
+    AtomicLong clock;
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        registry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Verifies that a client is limited to its burst and then to the refill rate, without affecting other clients.
+     */
+    @Test
+    void shouldRateLimitEachClient() throws Exception {
+        var filter = filter(2, new AimdConcurrencyLimit(10, 1, 10, TimeUnit.SECONDS.toNanos(1), 0));
+
+        assertEquals(200, send(filter, "10.0.0.1").getStatus());
+        assertEquals(200, send(filter, "10.0.0.1").getStatus());
+        MockHttpServletResponse limited = send(filter, "10.0.0.1");
+        assertEquals(200, send(filter, "10.0.0.2").getStatus());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(200, send(filter, "10.0.0.1").getStatus());
+
+        assertEquals(429, limited.getStatus());
+        assertEquals("1", limited.getHeader("Retry-After"));
+        assertEquals(1, registry.get("runnerz.admission.rejected").tag("reason", "rate_limit").counter().count());
+        assertEquals(2, registry.get("runnerz.admission.clients").gauge().value());
+    }
+
+    /**
+     * Verifies that requests beyond the concurrency limit are turned away with 503 while others are in flight.
+     */
+    @Test
+    void shouldShedRequestsOverConcurrencyLimit() throws Exception {
+        var filter = filter(100, new AimdConcurrencyLimit(1, 1, 1, TimeUnit.SECONDS.toNanos(1), 0));
+        MockHttpServletResponse[] shed = new MockHttpServletResponse[1];
+
+        var first = new MockHttpServletResponse();
+        filter.doFilter(request("10.0.0.1"), first, (request, response) -> {
+            assertEquals(1, registry.get("runnerz.admission.in_flight").tag("pool", "interactive").gauge().value());
+            shed[0] = send(filter, "10.0.0.2");
+        });
+
+        assertEquals(200, first.getStatus());
+        assertEquals(503, shed[0].getStatus());
+        assertEquals("1", shed[0].getHeader("Retry-After"));
+        assertEquals(0, registry.get("runnerz.admission.in_flight").tag("pool", "interactive").gauge().value());
+        assertEquals(1, registry.get("runnerz.admission.rejected").tag("reason", "concurrency_limit").counter().count());
+    }
+
+    /**
+     * Verifies that the limit is cut once per round of slow requests and grows back while fast requests fill it.
+     */
+    @Test
+    void shouldAdaptConcurrencyLimit() {
+        var limit = new AimdConcurrencyLimit(10, 2, 20, 100, 0);
+
+        // A round of 10 slow requests: only the first one completing cuts the limit
+        acquire(limit, 10);
+        for (int i = 0; i < 10; i++) {
+            limit.release(1, 1000, false);
+        }
+        assertEquals(9, limit.limit());
+
+        // A request failing with 503 in the next round cuts it again, however fast
+        acquire(limit, 1);
+        limit.release(2000, 2010, true);
+        assertEquals(8, limit.limit());
+
+        // Rounds of fast requests using the whole limit grow it by about one per round
+        for (int round = 0; round < 4; round++) {
+            int slots = limit.limit();
+            acquire(limit, slots);
+            for (int i = 0; i < slots; i++) {
+                limit.release(3000, 3010, false);
+            }
+        }
+        assertEquals(10, limit.limit());
+    }
+
+    /**
+     * Verifies that slow bulk requests are limited on their own and leave the interactive limit alone,
+     * and that an exception escaping the chain is not taken as overload.
+     */
+    @Test
+    void shouldKeepBulkAndFailedRequestsOutOfInteractiveLimit() throws Exception {
+        var interactive = new AimdConcurrencyLimit(10, 1, 10, TimeUnit.SECONDS.toNanos(1), 0);
+        var bulk = new AimdConcurrencyLimit(2, 1, 2, TimeUnit.MINUTES.toNanos(1), 0);
+        var filter = new AdmissionControlFilter(100, 100, 1000, interactive, bulk, registry, clock::get);
+        clock.addAndGet(1);
+
+        var export = new MockHttpServletRequest("POST", "/api/runs/export");
+        filter.doFilter(export, new MockHttpServletResponse(), (request, response) -> clock.addAndGet(TimeUnit.SECONDS.toNanos(30)));
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(request("10.0.0.1"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    throw new IllegalStateException("Failed to update run");
+                }));
+
+        assertEquals(10, interactive.limit());
+        assertEquals(2, bulk.limit());
+        assertEquals(0, registry.get("runnerz.admission.in_flight").tag("pool", "bulk").gauge().value());
+        assertTrue(AdmissionControlFilter.isBulk(new MockHttpServletRequest("POST", "/api/runs/batch")));
+        assertTrue(AdmissionControlFilter.isBulk(new MockHttpServletRequest("GET", "/api/runs")));
+        assertFalse(AdmissionControlFilter.isBulk(pagedRequest()));
+        assertFalse(AdmissionControlFilter.isBulk(new MockHttpServletRequest("GET", "/api/runs/42")));
+    }
+
+    private AdmissionControlFilter filter(double burst, AimdConcurrencyLimit limit) {
+        return new AdmissionControlFilter(2, burst, 1000, limit, new AimdConcurrencyLimit(1, 1, 1, 1, 0), registry, clock::get);
+    }
+
+    private static MockHttpServletRequest pagedRequest() {
+        var request = new MockHttpServletRequest("GET", "/api/runs");
+        request.setParameter("limit", "50");
+        return request;
+    }
+
+    private MockHttpServletResponse send(AdmissionControlFilter filter, String client) throws ServletException, IOException {
+        var response = new MockHttpServletResponse();
+        FilterChain chain = (request, ignored) -> {
+        };
+        filter.doFilter(request(client), response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String client) {
+        var request = new MockHttpServletRequest("GET", "/api/runs/1");
+        request.setRemoteAddr(client);
+        return request;
+    }
+
+    private static void acquire(AimdConcurrencyLimit limit, int slots) {
+        for (int i = 0; i < slots; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package devdarvegga.runnerz.config;
+
+import devdarvegga.runnerz.run.CachingRunRepository;
+import devdarvegga.runnerz.run.IndexingRunRepository;
+import devdarvegga.runnerz.run.JdbcRunRepository;
+import devdarvegga.runnerz.run.MeteredRunRepository;
+import devdarvegga.runnerz.run.PublishingRunRepository;
+import devdarvegga.runnerz.run.RunRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration test for the RunRepository decorator stack with the read-through cache enabled.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "runnerz.cache.enabled=true")
+class RunRepositoryConfigTest {
+
+    @Autowired
+    RunRepository repository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    /**
+     * Verifies that the cache sits on top of the decorated JDBC repository without being decorated itself,
+     * so each call is timed once, against the storage class.
+     */
+    @Test
+    void shouldDecorateStorageOnce() {
+        var caching = assertInstanceOf(CachingRunRepository.class, repository);
+        var metered = assertInstanceOf(MeteredRunRepository.class, caching.delegate());
+        var publishing = assertInstanceOf(PublishingRunRepository.class, metered.delegate());
+        var indexing = assertInstanceOf(IndexingRunRepository.class, publishing.delegate());
+        assertInstanceOf(JdbcRunRepository.class, indexing.delegate());
+
+        long before = findAllCalls();
+        repository.findAll();
+
+        assertEquals(before + 1, findAllCalls());
+        assertTrue(meterRegistry.find("runnerz.repository").tag("implementation", "CachingRunRepository").timers().isEmpty());
+    }
+
+    private long findAllCalls() {
+        return meterRegistry.find("runnerz.repository").tag("method", "findAll").tag("implementation", "JdbcRunRepository")
+                .timers().stream().mapToLong(Timer::count).sum();
+    }
+}
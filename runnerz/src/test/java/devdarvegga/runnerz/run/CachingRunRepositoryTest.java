@@ -0,0 +1,106 @@
+package devdarvegga.runnerz.run;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static devdarvegga.runnerz.run.TestRuns.run;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for CachingRunRepository in front of an InMemoryRunRepository that counts lookups by ID.
+ */
+class CachingRunRepositoryTest {
+
+    AtomicInteger loads;
+    CountDownLatch release;
+    SimpleMeterRegistry registry;
+    CachingRunRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        loads = new AtomicInteger();
+        release = new CountDownLatch(0);
+        registry = new SimpleMeterRegistry();
+        InMemoryRunRepository delegate = new InMemoryRunRepository() {
+            @Override
+            public Optional<VersionedRun> findVersionedById(Integer id) {
+                loads.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.findVersionedById(id);
+            }
+        };
+        delegate.create(run(1, "Monday Morning Run"));
+        repository = new CachingRunRepository(delegate, registry, 100, Duration.ofMinutes(5));
+    }
+
+    /**
+     * Verifies that repeated lookups, including of missing IDs, reach the delegate once and are counted as hits.
+     */
+    @Test
+    void shouldServeRepeatReadsFromCache() {
+        assertEquals("Monday Morning Run", repository.findById(1).get().title());
+        assertEquals("Monday Morning Run", repository.findById(1).get().title());
+        assertTrue(repository.findById(2).isEmpty());
+        assertTrue(repository.findVersionedById(2).isEmpty());
+
+        assertEquals(2, loads.get());
+        assertEquals(2, registry.get("cache.gets").tag("cache", "runs").tag("result", "hit").functionCounter().count());
+    }
+
+    /**
+     * Verifies that create, update and delete invalidate the affected ID.
+     */
+    @Test
+    void shouldInvalidateOnWrites() {
+        assertTrue(repository.findById(2).isEmpty());
+        repository.create(run(2, "Wednesday Evening Run"));
+        assertEquals("Wednesday Evening Run", repository.findById(2).get().title());
+
+        repository.update(run(2, "Thursday Evening Run"), 2);
+        assertEquals("Thursday Evening Run", repository.findById(2).get().title());
+
+        repository.deleteAll(List.of(2));
+        assertTrue(repository.findById(2).isEmpty());
+    }
+
+    /**
+     * Verifies that concurrent misses for the same ID share one load from the delegate.
+     */
+    @Test
+    void shouldLoadOnceForConcurrentMisses() throws Exception {
+        release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<Run>>> lookups = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                lookups.add(executor.submit(() -> repository.findById(1)));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<Optional<Run>> lookup : lookups) {
+                assertEquals(1, lookup.get(5, TimeUnit.SECONDS).get().id());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+}
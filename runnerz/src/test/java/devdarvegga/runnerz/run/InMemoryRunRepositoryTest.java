@@ -7,10 +7,15 @@ import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class InMemoryRunRepositoryTest {
 
@@ -49,12 +54,7 @@ class InMemoryRunRepositoryTest {
 
     @Test
     void shouldNotFindRunWithInvalidId() {
-        RunNotFoundException notFoundException = assertThrows(
-                RunNotFoundException.class,
-                () -> repository.findById(3).get()
-        );
-
-        assertEquals("Run Not Found", notFoundException.getMessage());
+        assertTrue(repository.findById(3).isEmpty());
     }
 
     @Test
@@ -90,5 +90,94 @@ class InMemoryRunRepositoryTest {
         assertEquals(1, runs.size());
     }
 
+    @Test
+    void shouldFindRunsByLocationAndDateRangeFromIndex() {
+        LocalDateTime start = LocalDateTime.of(2024, 2, 1, 6, 0);
+        for (int id = 10; id < 20; id++) {
+            repository.create(new Run(id, "Run " + id, start.plusDays(id), start.plusDays(id).plusMinutes(40), 4,
+                    id % 2 == 0 ? Location.OUTDOOR : Location.INDOOR));
+        }
+
+        List<Run> runs = repository.findByLocation(Location.OUTDOOR, start.plusDays(12), start.plusDays(18));
 
-}
\ No newline at end of file
+        assertEquals(List.of(12, 14, 16), runs.stream().map(Run::id).toList());
+        assertEquals(List.of(11, 12, 13), repository.findAll(10, 3).stream().map(Run::id).toList());
+    }
+
+    @Test
+    void shouldFindRunsByPaceFromIndex() {
+        LocalDateTime start = LocalDateTime.of(2024, 2, 1, 6, 0);
+        for (int id = 10; id < 20; id++) {
+            repository.create(new Run(id, "Run " + id, start, start.plusMinutes(60), id - 8, Location.OUTDOOR));
+        }
+        repository.update(new Run(10, "Run 10", start, start.plusMinutes(30), 10, Location.OUTDOOR), 10);
+
+        assertEquals(List.of(10, 19, 18), repository.findByPace(null, null, 3).stream().map(Run::id).toList());
+        assertEquals(List.of(16, 15), repository.findByPace(60.0 / 8, 9.0, 10).stream().map(Run::id).toList());
+    }
+
+    @Test
+    void shouldStreamRunColumnsInBatches() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 6, 0);
+        for (int id = 10; id < 1210; id++) {
+            repository.create(new Run(id, "Run " + id, start.plusHours(id), start.plusHours(id).plusMinutes(45), 5, Location.OUTDOOR));
+        }
+
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        repository.streamColumns(start.plusHours(10), start.plusHours(1210), batch -> {
+            batchSizes.add(batch.size());
+            for (int row = 0; row < batch.size(); row++) {
+                ids.add(batch.id(row));
+            }
+        });
+
+        assertEquals(List.of(500, 500, 200), batchSizes);
+        assertEquals(1200, ids.size());
+        assertEquals(10, ids.get(0));
+        assertEquals(1209, ids.get(1199));
+    }
+
+    @Test
+    void shouldKeepIndexesConsistentUnderConcurrentWrites() throws Exception {
+        int threads = 8;
+        int runsPerThread = 500;
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 6, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int firstId = 1000 + t * runsPerThread;
+                futures.add(executor.submit(() -> {
+                    for (int id = firstId; id < firstId + runsPerThread; id++) {
+                        LocalDateTime startedOn = start.plusMinutes(id);
+                        repository.create(new Run(id, "Run " + id, startedOn, startedOn.plusMinutes(30), 3, Location.INDOOR));
+                        // Move every run outdoors and delete every third one, racing with readers below
+                        repository.update(new Run(id, "Run " + id, startedOn, startedOn.plusMinutes(30), 3, Location.OUTDOOR), id);
+                        if (id % 3 == 0) {
+                            repository.delete(id);
+                        }
+                        repository.findByLocation(Location.INDOOR, null, null);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int expectedOutdoor = 0;
+        for (int id = 1000; id < 1000 + threads * runsPerThread; id++) {
+            if (id % 3 != 0) {
+                expectedOutdoor++;
+            }
+        }
+        assertEquals(2, repository.findByLocation(Location.INDOOR, null, null).size());
+        assertEquals(expectedOutdoor, repository.findByLocation(Location.OUTDOOR, null, null).size());
+        assertEquals(expectedOutdoor + 2, repository.count());
+        assertEquals(repository.count(), repository.findAll().size());
+        assertTrue(repository.findAll().stream().allMatch(run -> run.id() < 1000 || run.location() == Location.OUTDOOR));
+    }
+}
@@ -4,22 +4,48 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import static devdarvegga.runnerz.run.TestRuns.runs;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Integration test for JdbcRunRepository using an in-memory test database.
  * Verifies that JDBC queries return expected results.
  */
 @JdbcTest // Loads only JDBC-related components (DataSource, JdbcTemplate, etc.)
-@Import(JdbcRunRepository.class) // Explicitly imports the repository under test
+@Import({JdbcRunRepository.class, RunPartitions.class}) // Explicitly imports the repository under test and its partitions
 class JdbcRunRepositoryTest {
 
     @Autowired
     JdbcRunRepository repository;
 
+    @Autowired
+    JdbcClient jdbcClient;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    RunPartitions partitions;
+
     /**
      * Verifies that findAll() returns the expected number of runs.
      * Assumes test data is preloaded via schema.sql and data.sql.
@@ -28,7 +54,298 @@ class JdbcRunRepositoryTest {
     void shouldFindAllRuns() {
         List<Run> runs = repository.findAll();
 
-        // Adjust this number based on how many rows are inserted in your test data.sql
-        assertEquals(1, runs.size());
+        // data.sql seeds ten runs
+        assertEquals(10, runs.size());
+    }
+
+    /**
+     * Verifies that keyset pagination returns the runs after the given ID, in ID order.
+     */
+    @Test
+    void shouldFindPageOfRunsAfterId() {
+        List<Run> page = repository.findAll(3, 4);
+
+        assertEquals(List.of(4, 5, 6, 7), page.stream().map(Run::id).toList());
+    }
+
+    /**
+     * Verifies that streamAll() visits every run in ID order.
+     */
+    @Test
+    void shouldStreamAllRuns() {
+        List<Integer> ids = new ArrayList<>();
+        repository.streamAll(run -> ids.add(run.id()));
+
+        assertEquals(repository.findAll(null, 100).stream().map(Run::id).toList(), ids);
+    }
+
+    /**
+     * Verifies that streaming a start-time range visits only runs within [from, to), in start order.
+     */
+    @Test
+    void shouldStreamRunsInDateRange() {
+        List<Integer> ids = new ArrayList<>();
+        repository.streamAll(LocalDateTime.of(2024, 2, 27, 0, 0), null, run -> ids.add(run.id()));
+        repository.streamAll(null, LocalDateTime.of(2024, 2, 21, 0, 0), run -> ids.add(run.id()));
+
+        assertEquals(List.of(8, 9, 10, 1), ids);
+    }
+
+    /**
+     * Verifies that column batches hold the same runs, in start order, as streaming whole runs.
+     */
+    @Test
+    void shouldStreamRunColumns() {
+        List<Run> expected = new ArrayList<>();
+        List<Run> runs = new ArrayList<>();
+        List<Double> paces = new ArrayList<>();
+        repository.streamAll(null, null, expected::add);
+        repository.streamColumns(null, null, batch -> {
+            for (int row = 0; row < batch.size(); row++) {
+                runs.add(batch.run(row));
+                paces.add(batch.pace(row));
+            }
+        });
+
+        assertEquals(expected, runs);
+        assertEquals(expected.stream().map(Run::pace).toList(), paces);
+    }
+
+    /**
+     * Verifies that location searches map the stored location and honour the start-time range.
+     */
+    @Test
+    void shouldFindRunsByLocationAndDateRange() {
+        List<Run> runs = repository.findByLocation(Location.INDOOR,
+                LocalDateTime.of(2024, 2, 22, 0, 0),
+                LocalDateTime.of(2024, 2, 27, 0, 0));
+
+        assertEquals(List.of(3, 5, 7), runs.stream().map(Run::id).toList());
+        assertEquals(Location.INDOOR, runs.get(0).location());
+        assertEquals(5, repository.findByLocation("INDOOR").size());
+        assertEquals(List.of(), repository.findByLocation("MARS"));
+    }
+
+    /**
+     * Verifies that statistics are aggregated in the database, both as totals and per group.
+     * The seeded runs all last one hour, over 5 to 14 miles.
+     */
+    @Test
+    void shouldComputeRunStats() {
+        RunStats totals = repository.findStats(false, null, null, null).get(0);
+        assertEquals(10, totals.runs());
+        assertEquals(95, totals.miles());
+        assertEquals(600, totals.minutes(), 0.001);
+        assertEquals(600.0 / 95, totals.avgPace(), 0.001);
+
+        List<RunStats> byLocation = repository.findStats(true, RunStats.Period.MONTH, null, null);
+        assertEquals(2, byLocation.size());
+        assertEquals(Location.INDOOR, byLocation.get(0).location());
+        assertEquals(LocalDate.of(2024, 2, 1), byLocation.get(0).period());
+        assertEquals(45, byLocation.get(0).miles());
+        assertEquals(60.0 / 9, byLocation.get(0).medianPace(), 0.001);
+
+        List<RunStats> byWeek = repository.findStats(false, RunStats.Period.WEEK, null, null);
+        assertEquals(LocalDate.of(2024, 2, 19), byWeek.get(0).period());
+        assertEquals(6, byWeek.get(0).runs());
+    }
+
+    /**
+     * Verifies that pace queries are answered from the stored pace, which updates keep current.
+     * Seeded paces are 60 / miles minutes per mile.
+     */
+    @Test
+    void shouldFindRunsByPace() {
+        assertEquals(List.of(10, 9, 8), repository.findByPace(null, null, 3).stream().map(Run::id).toList());
+        assertEquals(List.of(6, 5, 4), repository.findByPace(6.0, 7.5, 10).stream().map(Run::id).toList());
+
+        Run run = repository.findById(1).get();
+        repository.update(new Run(1, run.title(), run.startedOn(), run.completedOn(), 20, run.location()), 1);
+
+        assertEquals(List.of(1, 10), repository.findByPace(null, null, 2).stream().map(Run::id).toList());
+        assertEquals(List.of(), repository.findByPace(11.0, null, 10));
+    }
+
+    /**
+     * Verifies that writes advance the table version and give the rows they touch a new version.
+     */
+    @Test
+    void shouldVersionRowsAndTable() {
+        long before = repository.version();
+        VersionedRun run = repository.findVersionedById(1).get();
+
+        repository.update(run.run(), 1);
+        long afterUpdate = repository.version();
+        repository.delete(2);
+
+        assertTrue(afterUpdate > before);
+        assertTrue(repository.findVersionedById(1).get().version() > run.version());
+        assertTrue(repository.version() > afterUpdate);
+    }
+
+    /**
+     * Verifies that deleteAllUnchanged() deletes only runs still at the version they were read at.
+     */
+    @Test
+    void shouldDeleteOnlyUnchangedRuns() {
+        Map<Integer, Long> versions = new LinkedHashMap<>();
+        repository.streamVersioned(null, null, run -> versions.put(run.run().id(), run.version()));
+        repository.update(repository.findById(2).get(), 2);
+        repository.delete(3);
+
+        List<BulkResult.Item> items = repository.deleteAllUnchanged(versions);
+
+        assertEquals(BulkResult.Status.DELETED, items.get(0).status());
+        assertEquals(BulkResult.Status.CONFLICT, items.get(1).status());
+        assertEquals(BulkResult.Status.CONFLICT, items.get(2).status());
+        assertEquals(List.of(2), repository.findAll().stream().map(Run::id).toList());
+    }
+
+    /**
+     * Verifies that the cached count tracks creates and deletes made through the repository.
+     */
+    @Test
+    void shouldTrackApproximateCount() {
+        int count = repository.count();
+        assertEquals(count, repository.approximateCount());
+
+        repository.create(runs(300, 1).get(0));
+        repository.delete(1);
+        repository.delete(2);
+
+        assertEquals(count - 1, repository.approximateCount());
+        assertEquals(count - 1, repository.count());
+    }
+
+    /**
+     * Verifies that saveAll() writes every run across several batch chunks.
+     */
+    @Test
+    void shouldSaveAllRunsInChunks() {
+        var batched = new JdbcRunRepository(jdbcClient, jdbcTemplate, transactionTemplate, partitions, 3);
+        int before = batched.count();
+
+        BatchResult result = batched.saveAll(runs(100, 10));
+
+        assertEquals(10, result.saved());
+        assertFalse(result.hasFailures());
+        assertEquals(before + 10, batched.count());
+    }
+
+    /**
+     * Verifies that chunked writes joining the caller's transaction (the test's own) advance the table version
+     * once, after their last chunk, rather than once per chunk.
+     */
+    @Test
+    void shouldAdvanceVersionOncePerJoinedTransaction() {
+        var batched = new JdbcRunRepository(jdbcClient, jdbcTemplate, transactionTemplate, partitions, 3);
+        long before = repository.version();
+
+        batched.saveAll(runs(100, 10));
+        assertEquals(before + 1, repository.version());
+
+        batched.upsertAll(runs(105, 10));
+        assertEquals(before + 2, repository.version());
+
+        batched.deleteAll(List.of(100, 101, 102, 103, 104, 105, 106));
+        assertEquals(before + 3, repository.version());
+    }
+
+    /**
+     * Verifies that a failing chunk is rolled back and reported without stopping the remaining chunks,
+     * and without dooming the caller's transaction.
+     * The second chunk reuses an existing id and is rejected by the primary key.
+     */
+    @Test
+    void shouldReportFailedChunks() {
+        var batched = new JdbcRunRepository(jdbcClient, jdbcTemplate, transactionTemplate, partitions, 2);
+        List<Run> runs = new ArrayList<>(runs(200, 6));
+        runs.set(3, runs.get(0));
+
+        BatchResult[] saved = new BatchResult[1];
+        boolean rollbackOnly = transactionTemplate.execute(status -> {
+            saved[0] = batched.saveAll(runs);
+            return status.isRollbackOnly();
+        });
+        BatchResult result = saved[0];
+
+        assertFalse(rollbackOnly);
+        assertEquals(List.of(200, 201, 204, 205), jdbcClient.sql("SELECT id FROM run WHERE id >= 200 ORDER BY id")
+                .query(Integer.class)
+                .list());
+
+        assertEquals(4, result.saved());
+        assertEquals(1, result.failures().size());
+        assertEquals(1, result.failures().get(0).chunk());
+        assertEquals(2, result.failures().get(0).fromIndex());
+        assertEquals(4, result.failures().get(0).toIndex());
+    }
+
+    /**
+     * Verifies that runs are written to the partition of their month, and moved when their start time changes month.
+     */
+    @Test
+    void shouldRouteRunsToMonthlyPartitions() {
+        Run run = runs(400, 1).get(0);
+        repository.create(run);
+
+        assertEquals(1, countIn(YearMonth.of(2024, 3), 400));
+        assertEquals(run, repository.findById(400).get());
+
+        Run moved = new Run(400, run.title(), run.startedOn().plusMonths(1), run.completedOn().plusMonths(1), run.miles(), run.location());
+        repository.update(moved, 400);
+
+        assertEquals(0, countIn(YearMonth.of(2024, 3), 400));
+        assertEquals(1, countIn(YearMonth.of(2024, 4), 400));
+        assertEquals(moved, repository.findById(400).get());
+        assertEquals(List.of(400), repository.findByLocation(Location.OUTDOOR, LocalDateTime.of(2024, 4, 1, 0, 0), null)
+                .stream().map(Run::id).toList());
+
+        repository.delete(400);
+        assertEquals(0, countIn(YearMonth.of(2024, 4), 400));
+    }
+
+    /**
+     * Verifies that an ID is unique across partitions, not just within the partition of the run's month.
+     */
+    @Test
+    void shouldRejectIdUsedInAnotherPartition() {
+        Run run = runs(1, 1).get(0);
+
+        assertThrows(DuplicateKeyException.class, () -> repository.create(run));
+    }
+
+    /**
+     * Verifies that date-bounded reads select only from the partitions of the months in range.
+     */
+    @Test
+    void shouldPruneReadsToPartitionsInRange() {
+        repository.saveAll(runs(500, 1));
+
+        assertEquals(RunPartitions.table(YearMonth.of(2024, 2)),
+                partitions.source(LocalDateTime.of(2024, 2, 10, 0, 0), LocalDateTime.of(2024, 3, 1, 0, 0)));
+        assertEquals(RunPartitions.table(YearMonth.of(2024, 3)), partitions.source(LocalDateTime.of(2024, 3, 5, 0, 0), LocalDateTime.of(2024, 3, 12, 0, 0)));
+        assertEquals("run", partitions.source(LocalDateTime.of(2030, 1, 1, 0, 0), null));
+    }
+
+    /**
+     * Verifies that a partition is only dropped once it holds no runs.
+     */
+    @Test
+    void shouldDropOnlyEmptyPartitions() {
+        partitions.ensure(List.of(LocalDateTime.of(2023, 7, 14, 6, 0)));
+
+        assertEquals(List.of(YearMonth.of(2023, 7)), partitions.before(LocalDate.of(2024, 2, 1)));
+        assertFalse(partitions.drop(YearMonth.of(2024, 2)));
+        assertTrue(partitions.drop(YearMonth.of(2023, 7)));
+        assertEquals(List.of(), partitions.before(LocalDate.of(2024, 2, 1)));
+        assertEquals(10, repository.findAll().size());
+    }
+
+    private int countIn(YearMonth month, int id) {
+        return jdbcClient.sql("SELECT COUNT(*) FROM " + RunPartitions.table(month) + " WHERE id = :id")
+                .param("id", id)
+                .query(Integer.class)
+                .single();
     }
-}
\ No newline at end of file
+}
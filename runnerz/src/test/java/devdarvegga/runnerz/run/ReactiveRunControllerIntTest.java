@@ -0,0 +1,147 @@
+package devdarvegga.runnerz.run;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Full integration test for ReactiveRunController on Netty, with the "reactive" profile
+ * and the same seeded test database as RunControllerIntTest.
+ */
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveRunControllerIntTest {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<Run>> RUN_EVENT = new ParameterizedTypeReference<>() {};
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    /**
+     * Verifies that GET /api/runs returns all seeded runs, and one keyset page with a link to the next.
+     */
+    @Test
+    void shouldFindAllAndPagedRuns() {
+        webTestClient.get().uri("/api/runs")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Run.class).hasSize(10);
+
+        webTestClient.get().uri("/api/runs?after=2&limit=3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("Link", link -> assertTrue(link.contains("after=5")))
+                .expectBodyList(Run.class)
+                .value(runs -> assertEquals(3, runs.get(0).id()));
+    }
+
+    /**
+     * Verifies that GET /api/runs/{id} returns the run with an ETag, 304 for that ETag and 404 for unknown IDs.
+     */
+    @Test
+    void shouldFindRunById() {
+        String eTag = webTestClient.get().uri("/api/runs/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Run.class).value(run -> assertEquals("Run 1", run.title()))
+                .returnResult().getResponseHeaders().getETag();
+
+        webTestClient.get().uri("/api/runs/1")
+                .header("If-None-Match", eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+        webTestClient.get().uri("/api/runs/99")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    /**
+     * Verifies create, update and delete, including 404 for missing runs and 400 for invalid ones.
+     */
+    @Test
+    void shouldWriteRuns() {
+        Run run = new Run(11, "Evening Run", LocalDateTime.now(), LocalDateTime.now().plusHours(1), 5, Location.OUTDOOR);
+        webTestClient.post().uri("/api/runs").bodyValue(run).exchange().expectStatus().isCreated();
+
+        webTestClient.put().uri("/api/runs/11")
+                .bodyValue(new Run(11, "Late Run", run.startedOn(), run.completedOn(), 5, Location.OUTDOOR))
+                .exchange()
+                .expectStatus().isNoContent();
+        webTestClient.get().uri("/api/runs/11")
+                .exchange()
+                .expectBody(Run.class).value(updated -> assertEquals("Late Run", updated.title()));
+        webTestClient.delete().uri("/api/runs/11").exchange().expectStatus().isNoContent();
+        webTestClient.delete().uri("/api/runs/11").exchange().expectStatus().isNotFound();
+        webTestClient.post().uri("/api/runs")
+                .bodyValue(new Run(12, "", run.startedOn(), run.completedOn(), 5, Location.OUTDOOR))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    /**
+     * Verifies location search, pace queries and full-text search, which sees runs created through the API.
+     */
+    @Test
+    void shouldSearchRuns() {
+        webTestClient.get().uri("/api/runs/search?location=INDOOR")
+                .exchange()
+                .expectBodyList(Run.class)
+                .value(runs -> assertTrue(runs.stream().allMatch(run -> run.location() == Location.INDOOR)));
+        webTestClient.get().uri("/api/runs/fastest?limit=1")
+                .exchange()
+                .expectBodyList(Run.class)
+                .value(runs -> assertEquals(10, runs.get(0).id()));
+
+        Run run = new Run(13, "Reactive riverside loop", LocalDateTime.now(), LocalDateTime.now().plusHours(1), 4, Location.OUTDOOR);
+        webTestClient.post().uri("/api/runs").bodyValue(run).exchange().expectStatus().isCreated();
+        webTestClient.get().uri("/api/runs/search?q=riverside")
+                .exchange()
+                .expectBody(RunSearchResult.class)
+                .value(result -> assertEquals(13, result.hits().get(0).run().id()));
+        webTestClient.get().uri("/api/runs/search?q=riverside&limit=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/runs/search?q=riverside&offset=9990&limit=20")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    /**
+     * Verifies that GET /api/runs/events opens with a heartbeat and then streams runs created after subscribing.
+     */
+    @Test
+    void shouldStreamCreatedRuns() {
+        Run run = new Run(14, "Streamed Run", LocalDateTime.now(), LocalDateTime.now().plusHours(1), 3, Location.INDOOR);
+
+        var events = webTestClient.get().uri("/api/runs/events")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(RUN_EVENT)
+                .getResponseBody();
+
+        StepVerifier.create(events)
+                .assertNext(event -> assertEquals("heartbeat", event.comment()))
+                .then(() -> webTestClient.post().uri("/api/runs").bodyValue(run).exchange().expectStatus().isCreated())
+                .assertNext(event -> {
+                    assertEquals("created", event.event());
+                    assertEquals("14", event.id());
+                    assertEquals("Streamed Run", event.data().title());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+}
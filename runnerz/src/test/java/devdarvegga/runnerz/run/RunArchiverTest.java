@@ -0,0 +1,113 @@
+package devdarvegga.runnerz.run;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static devdarvegga.runnerz.run.TestRuns.run;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for RunArchiver writing archives of an InMemoryRunRepository to a temporary directory.
+ */
+class RunArchiverTest {
+
+    @TempDir
+    Path directory;
+
+    ObjectMapper objectMapper;
+    InMemoryRunRepository repository;
+    RunArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        repository = new InMemoryRunRepository();
+        archiver = new RunArchiver(repository, objectMapper, Optional.empty(), directory, 12);
+        repository.create(run(1, LocalDateTime.of(2024, 1, 5, 6, 0)));
+        repository.create(run(2, LocalDateTime.of(2024, 1, 31, 23, 30)));
+        repository.create(run(3, LocalDateTime.of(2024, 2, 10, 6, 0)));
+        repository.create(run(4, LocalDateTime.of(2024, 3, 1, 6, 0)));
+    }
+
+    /**
+     * Verifies that each whole month before the cutoff is written to its own file and removed from the repository.
+     */
+    @Test
+    void shouldArchiveWholeMonthsBeforeCutoff() throws IOException {
+        List<Path> files = archiver.archiveBefore(LocalDate.of(2024, 3, 15));
+
+        assertEquals(List.of(directory.resolve("runs-2024-01.ndjson.gz"), directory.resolve("runs-2024-02.ndjson.gz")), files);
+        assertEquals(List.of(1, 2), read(files.get(0)).stream().map(Run::id).toList());
+        assertEquals(List.of(3), read(files.get(1)).stream().map(Run::id).toList());
+        assertEquals(List.of(4), repository.findAll().stream().map(Run::id).toList());
+    }
+
+    /**
+     * Verifies that archiving a month again appends to its existing file.
+     */
+    @Test
+    void shouldAppendToExistingArchive() throws IOException {
+        archiver.archiveBefore(LocalDate.of(2024, 2, 1));
+        repository.create(run(5, LocalDateTime.of(2024, 1, 20, 6, 0)));
+
+        List<Path> files = archiver.archiveBefore(LocalDate.of(2024, 2, 1));
+
+        assertEquals(List.of(1, 2, 5), read(files.get(0)).stream().map(Run::id).toList());
+        assertEquals(List.of(3, 4), repository.findAll().stream().map(Run::id).toList());
+    }
+
+    /**
+     * Verifies that a run updated while its month is being archived is kept, in its updated state, for the next pass.
+     */
+    @Test
+    void shouldKeepRunsUpdatedWhileArchiving() throws IOException {
+        repository = new InMemoryRunRepository() {
+            @Override
+            public void streamVersioned(LocalDateTime from, LocalDateTime to, Consumer<VersionedRun> action) {
+                super.streamVersioned(from, to, action);
+                Run moved = run(2, LocalDateTime.of(2024, 4, 2, 6, 0));
+                update(moved, moved.id());
+            }
+        };
+        archiver = new RunArchiver(repository, objectMapper, Optional.empty(), directory, 12);
+        repository.create(run(1, LocalDateTime.of(2024, 1, 5, 6, 0)));
+        repository.create(run(2, LocalDateTime.of(2024, 1, 31, 23, 30)));
+
+        List<Path> files = archiver.archiveBefore(LocalDate.of(2024, 2, 1));
+
+        assertEquals(List.of(1, 2), read(files.get(0)).stream().map(Run::id).toList());
+        assertEquals(LocalDateTime.of(2024, 4, 2, 6, 0), repository.findById(2).orElseThrow().startedOn());
+        assertEquals(List.of(2), repository.findAll().stream().map(Run::id).toList());
+        try (var entries = Files.list(directory)) {
+            assertEquals(List.of(files.get(0)), entries.toList());
+        }
+    }
+
+    private List<Run> read(Path file) throws IOException {
+        try (var reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().map(line -> {
+                try {
+                    return objectMapper.readValue(line, Run.class);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).toList();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package devdarvegga.runnerz.run;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static devdarvegga.runnerz.run.TestRuns.run;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for RunChangeController: writes through the API show up as changes,
+ * by long polling and as server-sent events.
+ */
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class RunChangeControllerIntTest {
+
+    @LocalServerPort
+    int randomServerPort;
+
+    RestClient restClient;
+
+    @BeforeEach
+    void setUp() {
+        restClient = RestClient.create("http://localhost:" + randomServerPort);
+    }
+
+    /**
+     * Verifies that changes since a sequence number are returned in order and that the next page resumes after them.
+     */
+    @Test
+    void shouldReturnChangesSinceSequence() {
+        long since = currentSequence();
+        Run run = run(21, "Tempo Run");
+
+        restClient.post().uri("/api/runs").body(run).retrieve().toBodilessEntity();
+        restClient.put().uri("/api/runs/21").body(run(21, "Easy Run")).retrieve().toBodilessEntity();
+        restClient.delete().uri("/api/runs/21").retrieve().toBodilessEntity();
+        RunChanges changes = restClient.get().uri("/api/runs/changes?since={since}", since).retrieve().body(RunChanges.class);
+        RunChanges none = restClient.get().uri("/api/runs/changes?since={next}&wait=0", changes.next()).retrieve().body(RunChanges.class);
+
+        assertEquals(List.of(RunChange.Type.CREATED, RunChange.Type.UPDATED, RunChange.Type.DELETED),
+                changes.changes().stream().map(RunChange::type).toList());
+        assertEquals("Easy Run", changes.changes().get(1).run().title());
+        assertNull(changes.changes().get(2).run());
+        assertEquals(since + 3, changes.next());
+        assertEquals(List.of(), none.changes());
+        assertEquals(changes.next(), none.next());
+    }
+
+    /**
+     * Verifies that a long poll is answered as soon as a change is made, and 410 for an unknown sequence number.
+     */
+    @Test
+    void shouldAnswerLongPollOnNextChange() throws Exception {
+        long since = currentSequence();
+
+        CompletableFuture<RunChanges> poll = CompletableFuture.supplyAsync(() ->
+                restClient.get().uri("/api/runs/changes?since={since}&wait=30", since).retrieve().body(RunChanges.class));
+        Thread.sleep(500);
+        assertFalse(poll.isDone());
+        restClient.post().uri("/api/runs").body(run(22, "Hill Run")).retrieve().toBodilessEntity();
+
+        RunChanges changes = poll.get(10, TimeUnit.SECONDS);
+        assertEquals(22, changes.changes().get(0).id());
+        int gone = restClient.get()
+                .uri("/api/runs/changes?since={since}", since + 1000)
+                .exchange((request, response) -> response.getStatusCode().value());
+        assertEquals(410, gone);
+    }
+
+    /**
+     * Verifies that the event stream replays changes after since and then follows new ones.
+     */
+    @Test
+    void shouldStreamChangesAsEvents() throws IOException, InterruptedException {
+        long since = currentSequence();
+        restClient.post().uri("/api/runs").body(run(23, "Track Run")).retrieve().toBodilessEntity();
+
+        var client = HttpClient.newHttpClient();
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + randomServerPort + "/api/runs/changes?since=" + since))
+                .header("Accept", "text/event-stream")
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+        Iterator<String> lines = response.body().iterator();
+
+        assertEquals(200, response.statusCode());
+        assertEquals(List.of("id:" + (since + 1), "event:created"), List.of(lines.next(), lines.next()));
+        assertTrue(lines.next().contains("\"title\":\"Track Run\""));
+        restClient.delete().uri("/api/runs/23").retrieve().toBodilessEntity();
+        assertEquals("", lines.next());
+        assertEquals(List.of("id:" + (since + 2), "event:deleted"), List.of(lines.next(), lines.next()));
+        response.body().close();
+    }
+
+    private long currentSequence() {
+        return restClient.get().uri("/api/runs/changes").retrieve().body(RunChanges.class).next();
+    }
+}
@@ -0,0 +1,89 @@
+package devdarvegga.runnerz.run;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static devdarvegga.runnerz.run.TestRuns.run;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RunChangeLog sequencing, resuming, overwriting and concurrent appends.
+ */
+class RunChangeLogTest {
+
+    /**
+     * Verifies that changes are numbered from 1 and read in order, limited and resumable from any number.
+     */
+    @Test
+    void shouldReadChangesAfterSequence() {
+        var log = new RunChangeLog(8);
+        log.append(RunChange.Type.CREATED, 1, run(1));
+        log.append(RunChange.Type.UPDATED, 1, run(1));
+        log.append(RunChange.Type.DELETED, 1, null);
+
+        assertEquals(3, log.sequence());
+        assertEquals(List.of(RunChange.Type.CREATED, RunChange.Type.UPDATED),
+                log.read(0, 2).stream().map(RunChange::type).toList());
+        assertEquals(List.of(3L), log.read(2, 10).stream().map(RunChange::sequence).toList());
+        assertEquals(List.of(), log.read(3, 10));
+    }
+
+    /**
+     * Verifies that capacity is rounded up to a power of two and that overwritten changes can no longer be resumed from.
+     */
+    @Test
+    void shouldExpireOverwrittenChanges() {
+        var log = new RunChangeLog(3);
+        for (int id = 1; id <= 6; id++) {
+            log.append(RunChange.Type.CREATED, id, run(id));
+        }
+
+        assertEquals(4, log.read(2, 10).size());
+        assertThrows(RunChangesExpiredException.class, () -> log.read(1, 10));
+        // A sequence number this log never handed out, e.g. from before a restart
+        assertThrows(RunChangesExpiredException.class, () -> log.read(7, 10));
+    }
+
+    /**
+     * Verifies that concurrent writers get distinct sequence numbers and readers see every change exactly once.
+     */
+    @Test
+    void shouldKeepEveryConcurrentChange() throws InterruptedException {
+        var log = new RunChangeLog(1 << 16);
+        var notifications = new AtomicInteger();
+        log.addListener(notifications::incrementAndGet);
+        int writers = 8;
+        int changesPerWriter = 1000;
+        var done = new CountDownLatch(writers);
+        try (var executor = Executors.newFixedThreadPool(writers)) {
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                executor.execute(() -> {
+                    for (int i = 0; i < changesPerWriter; i++) {
+                        log.append(RunChange.Type.CREATED, writer * changesPerWriter + i, null);
+                    }
+                    done.countDown();
+                });
+            }
+
+            List<Integer> seen = new ArrayList<>();
+            long cursor = 0;
+            while (done.getCount() > 0 || cursor < log.sequence()) {
+                for (RunChange change : log.read(cursor, 100)) {
+                    assertEquals(cursor + 1, change.sequence());
+                    seen.add(change.id());
+                    cursor = change.sequence();
+                }
+            }
+
+            assertEquals(writers * changesPerWriter, seen.size());
+            assertEquals(writers * changesPerWriter, seen.stream().distinct().count());
+            assertEquals(writers * changesPerWriter, notifications.get());
+        }
+    }
+}
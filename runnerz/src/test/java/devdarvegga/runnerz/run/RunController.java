@@ -2,15 +2,20 @@ package devdarvegga.runnerz.run;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.web.client.RestClient;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 @Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
 class RunControllerIntTest {
 
     @LocalServerPort
@@ -27,6 +33,12 @@ class RunControllerIntTest {
 
     RestClient restClient;
 
+    @Autowired
+    RunTitleIndex titleIndex;
+
+    @Autowired
+    RunRepository runRepository;
+
     /**
      * Initializes RestClient with the randomized test server port before each test.
      */
@@ -48,6 +60,20 @@ class RunControllerIntTest {
         assertEquals(10, runs.size());
     }
 
+    /**
+     * Verifies that GET /api/runs?after=&limit= returns one keyset page and a link to the next.
+     */
+    @Test
+    void shouldFindPageOfRuns() {
+        ResponseEntity<List<Run>> response = restClient.get()
+                .uri("/api/runs?after=2&limit=3")
+                .retrieve()
+                .toEntity(new ParameterizedTypeReference<>() {});
+
+        assertEquals(List.of(3, 4, 5), response.getBody().stream().map(Run::id).toList());
+        assertTrue(response.getHeaders().getFirst("Link").contains("after=5"));
+    }
+
     /**
      * Verifies that GET /api/runs/{id} returns the correct run.
      * Asserts all fields match expected values from data.sql.
@@ -69,6 +95,98 @@ class RunControllerIntTest {
         );
     }
 
+    /**
+     * Verifies that GET /api/runs answers Smile or CBOR when asked for them, with the same runs as JSON,
+     * and that JSON stays the default for wildcard Accept headers.
+     */
+    @Test
+    void shouldNegotiateBinaryFormats() {
+        List<Run> json = restClient.get().uri("/api/runs").retrieve().body(new ParameterizedTypeReference<>() {});
+
+        for (MediaType binary : List.of(new MediaType("application", "x-jackson-smile"), MediaType.APPLICATION_CBOR)) {
+            ResponseEntity<List<Run>> response = restClient.get()
+                    .uri("/api/runs")
+                    .accept(binary)
+                    .retrieve()
+                    .toEntity(new ParameterizedTypeReference<>() {});
+
+            assertEquals(binary, response.getHeaders().getContentType());
+            // Tomcat adds Accept-Encoding for compressible responses
+            assertTrue(response.getHeaders().getVary().stream().anyMatch("Accept"::equalsIgnoreCase));
+            assertEquals(json, response.getBody());
+        }
+
+        ResponseEntity<String> wildcard = restClient.get().uri("/api/runs/1").accept(MediaType.ALL).retrieve().toEntity(String.class);
+        assertEquals(MediaType.APPLICATION_JSON, wildcard.getHeaders().getContentType());
+        assertTrue(wildcard.getBody().contains("\"startedOn\":\"2024-02-20T06:00:00\""));
+    }
+
+    /**
+     * Verifies that JSON, Smile and CBOR representations of a run carry different ETags,
+     * so a cached body in one format is not revalidated for another.
+     */
+    @Test
+    void shouldTagEachFormatSeparately() {
+        List<MediaType> formats = List.of(MediaType.APPLICATION_JSON, new MediaType("application", "x-jackson-smile"), MediaType.APPLICATION_CBOR);
+        List<String> eTags = formats.stream()
+                .map(format -> restClient.get().uri("/api/runs/1").accept(format).retrieve().toBodilessEntity().getHeaders().getETag())
+                .toList();
+
+        assertEquals(3, Set.copyOf(eTags).size());
+        int status = restClient.get()
+                .uri("/api/runs/1")
+                .accept(formats.get(1))
+                .header("If-None-Match", eTags.get(0))
+                .exchange((request, response) -> response.getStatusCode().value());
+        assertEquals(200, status);
+    }
+
+    /**
+     * Verifies that GET /api/runs/{id} and GET /api/runs answer 304 for a matching If-None-Match,
+     * and that a write changes the ETags.
+     */
+    @Test
+    void shouldAnswerNotModifiedForMatchingETag() {
+        String runETag = restClient.get().uri("/api/runs/1").retrieve().toBodilessEntity().getHeaders().getETag();
+        String collectionETag = restClient.get().uri("/api/runs").retrieve().toBodilessEntity().getHeaders().getETag();
+
+        assertEquals(304, conditionalGetStatus("/api/runs/1", runETag));
+        assertEquals(304, conditionalGetStatus("/api/runs", collectionETag));
+
+        Run run = restClient.get().uri("/api/runs/1").retrieve().body(Run.class);
+        restClient.put().uri("/api/runs/1").body(run).retrieve().toBodilessEntity();
+
+        assertEquals(200, conditionalGetStatus("/api/runs/1", runETag));
+        assertEquals(200, conditionalGetStatus("/api/runs", collectionETag));
+    }
+
+    private int conditionalGetStatus(String uri, String eTag) {
+        return restClient.get()
+                .uri(uri)
+                .header("If-None-Match", eTag)
+                .exchange((request, response) -> response.getStatusCode().value());
+    }
+
+    /**
+     * Verifies that GET /api/runs is gzipped for clients accepting it, which Tomcat only does
+     * when the collection ETag is weak. The response cache is disabled, so Tomcat compresses the body itself.
+     */
+    @Test
+    void shouldGzipRunCollectionWhenAccepted() {
+        runRepository.saveAll(IntStream.rangeClosed(11, 40)
+                .mapToObj(id -> new Run(id, "Run " + id, LocalDateTime.of(2024, 3, 1, 6, 0), LocalDateTime.of(2024, 3, 1, 7, 0), 5, Location.OUTDOOR))
+                .toList());
+
+        ResponseEntity<byte[]> response = restClient.get()
+                .uri("/api/runs")
+                .header("Accept-Encoding", "gzip")
+                .retrieve()
+                .toEntity(byte[].class);
+
+        assertEquals("gzip", response.getHeaders().getFirst("Content-Encoding"));
+        assertTrue(response.getHeaders().getETag().startsWith("W/"));
+    }
+
     /**
      * Verifies that POST /api/runs creates a new run.
      * Asserts that the response status is 201 Created.
@@ -86,6 +204,74 @@ class RunControllerIntTest {
         assertEquals(201, newRun.getStatusCodeValue());
     }
 
+    /**
+     * Verifies that POST /api/runs/batch upserts valid runs and reports invalid ones per item,
+     * for both JSON array and NDJSON bodies.
+     */
+    @Test
+    void shouldUpsertRunsInBatch() {
+        String run1 = "{\"id\":1,\"title\":\"Updated\",\"startedOn\":\"2024-02-20T06:00:00\",\"completedOn\":\"2024-02-20T07:00:00\",\"miles\":5,\"location\":\"INDOOR\"}";
+        String run20 = "{\"id\":20,\"title\":\"New\",\"startedOn\":\"2024-03-01T06:00:00\",\"completedOn\":\"2024-03-01T07:00:00\",\"miles\":5,\"location\":\"OUTDOOR\"}";
+        String invalid = "{\"id\":21,\"title\":\"\",\"startedOn\":\"2024-03-01T06:00:00\",\"completedOn\":\"2024-03-01T07:00:00\",\"miles\":5,\"location\":\"OUTDOOR\"}";
+
+        BulkResult array = restClient.post()
+                .uri("/api/runs/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("[" + run1 + "," + run20 + "," + invalid + "]")
+                .retrieve()
+                .body(BulkResult.class);
+
+        assertEquals(2, array.succeeded());
+        assertEquals(List.of(BulkResult.Status.UPDATED, BulkResult.Status.CREATED, BulkResult.Status.INVALID),
+                array.items().stream().map(BulkResult.Item::status).toList());
+
+        BulkResult ndjson = restClient.post()
+                .uri("/api/runs/batch")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(run20 + "\n" + run20 + "\n")
+                .retrieve()
+                .body(BulkResult.class);
+
+        assertEquals(List.of(BulkResult.Status.UPDATED, BulkResult.Status.INVALID),
+                ndjson.items().stream().map(BulkResult.Item::status).toList());
+        assertEquals("Updated", restClient.get().uri("/api/runs/1").retrieve().body(Run.class).title());
+    }
+
+    /**
+     * Verifies that POST /api/runs/batch reports runs without a location or miles as INVALID
+     * instead of failing the whole batch.
+     */
+    @Test
+    void shouldReportRunsMissingLocationOrMilesAsInvalid() {
+        String noLocation = "{\"id\":20,\"title\":\"New\",\"startedOn\":\"2024-03-01T06:00:00\",\"completedOn\":\"2024-03-01T07:00:00\",\"miles\":5}";
+        String noMiles = "{\"id\":21,\"title\":\"New\",\"startedOn\":\"2024-03-01T06:00:00\",\"completedOn\":\"2024-03-01T07:00:00\",\"location\":\"OUTDOOR\"}";
+
+        BulkResult result = restClient.post()
+                .uri("/api/runs/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("[" + noLocation + "," + noMiles + "]")
+                .retrieve()
+                .body(BulkResult.class);
+
+        assertEquals(0, result.succeeded());
+        assertEquals(List.of(BulkResult.Status.INVALID, BulkResult.Status.INVALID),
+                result.items().stream().map(BulkResult.Item::status).toList());
+    }
+
+    /**
+     * Verifies that DELETE /api/runs?ids= deletes existing runs and reports unknown IDs.
+     */
+    @Test
+    void shouldDeleteRunsInBatch() {
+        BulkResult result = restClient.delete()
+                .uri("/api/runs?ids=1,2,99")
+                .retrieve()
+                .body(BulkResult.class);
+
+        assertEquals(2, result.succeeded());
+        assertEquals(BulkResult.Status.NOT_FOUND, result.items().get(2).status());
+    }
+
     /**
      * Verifies that PUT /api/runs/{id} updates an existing run.
      * Asserts that the response status is 204 No Content.
@@ -133,4 +319,51 @@ class RunControllerIntTest {
 
         assertEquals(5, indoorRuns.size()); // Based on your data.sql
     }
-}
\ No newline at end of file
+
+    /**
+     * Verifies that title search finds runs written after startup and still serves location searches.
+     */
+    @Test
+    void shouldSearchRunsByTitle() {
+        // @Sql reseeds the table behind the application's back, so resync the index first
+        titleIndex.rebuild(runRepository);
+        restClient.post()
+                .uri("/api/runs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new Run(11, "Foggy Harbour Loop", LocalDateTime.of(2024, 3, 1, 6, 0),
+                        LocalDateTime.of(2024, 3, 1, 7, 0), 6, Location.OUTDOOR))
+                .retrieve()
+                .toBodilessEntity();
+
+        RunSearchResult result = restClient.get()
+                .uri("/api/runs/search?q=harbour")
+                .retrieve()
+                .body(RunSearchResult.class);
+
+        assertEquals(1, result.total());
+        assertEquals(11, result.hits().get(0).run().id());
+        assertEquals(10, restClient.get().uri("/api/runs/search?q=run&limit=100").retrieve().body(RunSearchResult.class).total());
+        int deepPage = restClient.get().uri("/api/runs/search?q=run&offset=2000000000")
+                .exchange((request, response) -> response.getStatusCode().value());
+        assertEquals(400, deepPage);
+        assertEquals(5, restClient.get().uri("/api/runs/search?location=INDOOR").retrieve()
+                .body(new ParameterizedTypeReference<List<Run>>() {}).size());
+    }
+
+    /**
+     * Verifies that repository and response-size metrics are exported through the Prometheus endpoint.
+     */
+    @Test
+    void shouldExposeRunMetrics() {
+        restClient.get().uri("/api/runs").retrieve().toBodilessEntity();
+
+        String metrics = restClient.get()
+                .uri("/actuator/prometheus")
+                .retrieve()
+                .body(String.class);
+
+        assertTrue(metrics.contains("runnerz_repository_seconds_count{exception=\"none\",implementation=\"JdbcRunRepository\",method=\"findAll\""));
+        assertTrue(metrics.contains("runnerz_repository_rows_count{implementation=\"JdbcRunRepository\",method=\"findAll\""));
+        assertTrue(metrics.contains("runnerz_http_response_size_bytes_count{content_type=\"application/json\",method=\"GET\",status=\"200\",uri=\"/api/runs\""));
+    }
+}
@@ -0,0 +1,62 @@
+package devdarvegga.runnerz.run;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.web.client.RestClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration test for RunExportController streaming exports of the seeded runs from the database.
+ */
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class RunExportControllerIntTest {
+
+    @LocalServerPort
+    int randomServerPort;
+
+    RestClient restClient;
+
+    @BeforeEach
+    void setUp() {
+        restClient = RestClient.create("http://localhost:" + randomServerPort);
+    }
+
+    /**
+     * Verifies that a CSV export is an attachment holding the runs of the requested range in start order.
+     */
+    @Test
+    void shouldStreamCsvExport() {
+        ResponseEntity<String> response = restClient.get()
+                .uri("/api/runs/export?format=csv&from=2024-02-27T00:00")
+                .retrieve()
+                .toEntity(String.class);
+
+        assertEquals("text/csv", response.getHeaders().getContentType().toString());
+        assertEquals("attachment; filename=\"runs.csv\"", response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        String[] lines = response.getBody().split("\r\n");
+        assertEquals(4, lines.length);
+        assertEquals("8,Run 8,2024-02-27T06:00:00,2024-02-27T07:00:00,12,OUTDOOR,3600,5.0", lines[1]);
+    }
+
+    /**
+     * Verifies that a Parquet export starts and ends with the Parquet magic number, and that unknown formats answer 400.
+     */
+    @Test
+    void shouldStreamParquetExport() {
+        byte[] file = restClient.get().uri("/api/runs/export?format=parquet").retrieve().body(byte[].class);
+        int unknown = restClient.get()
+                .uri("/api/runs/export?format=xlsx")
+                .exchange((request, response) -> response.getStatusCode().value());
+
+        assertTrue(new String(file, 0, 4).equals("PAR1") && new String(file, file.length - 4, 4).equals("PAR1"));
+        assertEquals(400, unknown);
+    }
+}
@@ -0,0 +1,170 @@
+package devdarvegga.runnerz.run;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.Type;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static devdarvegga.runnerz.run.TestRuns.run;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for RunExporter exporting an InMemoryRunRepository, to a stream and to a temporary directory.
+ */
+class RunExporterTest {
+
+    @TempDir
+    Path directory;
+
+    InMemoryRunRepository repository;
+    RunExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryRunRepository();
+        // Row groups of 2 runs, so the runs below span several
+        exporter = new RunExporter(repository, directory, 2);
+        repository.create(run(3, "Tempo", LocalDateTime.of(2024, 3, 1, 6, 0)));
+        repository.create(run(1, "Hill \"repeats\", 6x", LocalDateTime.of(2024, 1, 5, 6, 0)));
+        repository.create(run(2, "Easy", LocalDateTime.of(2024, 2, 10, 18, 30)));
+    }
+
+    /**
+     * Verifies the CSV header, quoting, date-time format and ordering by start time within [from, to).
+     */
+    @Test
+    void shouldExportRunsAsCsv() throws IOException {
+        var out = new ByteArrayOutputStream();
+        long runs = exporter.export(RunExportFormat.CSV, LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 3, 1, 6, 0), out);
+
+        assertEquals(2, runs);
+        assertEquals(List.of(
+                RunCsvWriter.HEADER,
+                "1,\"Hill \"\"repeats\"\", 6x\",2024-01-05T06:00:00,2024-01-05T06:45:00,5,OUTDOOR,2700,9.0",
+                "2,Easy,2024-02-10T18:30:00,2024-02-10T19:15:00,5,OUTDOOR,2700,9.0"),
+                Arrays.asList(out.toString(StandardCharsets.UTF_8).split("\r\n")));
+    }
+
+    /**
+     * Verifies that a Parquet export reads back with parquet-hadoop: the schema, one row group per 2 runs,
+     * and every value, ordered by start time.
+     */
+    @Test
+    void shouldExportRunsAsParquet() throws IOException {
+        Path file = directory.resolve("runs.parquet");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            assertEquals(3, exporter.export(RunExportFormat.PARQUET, null, null, out));
+        }
+
+        try (var reader = ParquetFileReader.open(HadoopInputFile.fromPath(hadoopPath(file), new Configuration()))) {
+            assertEquals(List.of(RunCsvWriter.HEADER.split(",")),
+                    reader.getFileMetaData().getSchema().getFields().stream().map(Type::getName).toList());
+            assertEquals(3, reader.getRecordCount());
+            assertEquals(2, reader.getRowGroups().size());
+        }
+        List<Group> rows = readParquet(file);
+        assertEquals(List.of(1, 2, 3), rows.stream().map(row -> row.getInteger("id", 0)).toList());
+        Group first = rows.get(0);
+        assertEquals("Hill \"repeats\", 6x", first.getString("title", 0));
+        assertEquals(epochMillis(LocalDateTime.of(2024, 1, 5, 6, 0)), first.getLong("started_on", 0));
+        assertEquals(epochMillis(LocalDateTime.of(2024, 1, 5, 6, 45)), first.getLong("completed_on", 0));
+        assertEquals(5, first.getInteger("miles", 0));
+        assertEquals("OUTDOOR", first.getString("location", 0));
+        assertEquals(2700, first.getLong("duration_seconds", 0));
+        assertEquals(9.0, first.getDouble("pace", 0));
+    }
+
+    /**
+     * Verifies that runs without a title are written as nulls, next to titled runs in the same row group.
+     */
+    @Test
+    void shouldExportNullTitlesAsParquetNulls() throws IOException {
+        repository.create(new Run(4, null, LocalDateTime.of(2024, 4, 1, 7, 0), LocalDateTime.of(2024, 4, 1, 7, 30), 3, Location.INDOOR));
+        Path file = directory.resolve("runs.parquet");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            exporter.export(RunExportFormat.PARQUET, LocalDateTime.of(2024, 3, 1, 0, 0), null, out);
+        }
+
+        List<Group> rows = readParquet(file);
+        assertEquals(2, rows.size());
+        assertEquals("Tempo", rows.get(0).getString("title", 0));
+        assertEquals(0, rows.get(1).getFieldRepetitionCount("title"));
+        assertEquals("INDOOR", rows.get(1).getString("location", 0));
+        assertEquals(1800, rows.get(1).getLong("duration_seconds", 0));
+    }
+
+    /**
+     * Verifies that an export matching no runs is still a valid Parquet file, with the schema and no rows.
+     */
+    @Test
+    void shouldExportEmptyParquetFile() throws IOException {
+        Path file = directory.resolve("runs.parquet");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            assertEquals(0, exporter.export(RunExportFormat.PARQUET, LocalDateTime.of(2025, 1, 1, 0, 0), null, out));
+        }
+
+        try (var reader = ParquetFileReader.open(HadoopInputFile.fromPath(hadoopPath(file), new Configuration()))) {
+            assertEquals(RunCsvWriter.HEADER.split(",").length, reader.getFileMetaData().getSchema().getFieldCount());
+            assertEquals(0, reader.getRecordCount());
+        }
+        assertEquals(List.of(), readParquet(file));
+    }
+
+    /**
+     * Verifies that a file export ends up complete under its final name, with nothing temporary left behind.
+     */
+    @Test
+    void shouldExportRunsToFile() throws IOException {
+        RunExport export = exporter.exportToFile(RunExportFormat.CSV, null, null);
+
+        assertTrue(export.file().matches("runs-\\d{8}-\\d{6}-\\d+\\.csv\\.gz"), export.file());
+        assertEquals(3, export.runs());
+        Path file = directory.resolve(export.file());
+        assertEquals(Files.size(file), export.bytes());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertEquals(4, new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\r\n").length);
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    private static List<Group> readParquet(Path file) throws IOException {
+        List<Group> rows = new ArrayList<>();
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), hadoopPath(file)).build()) {
+            for (Group row = reader.read(); row != null; row = reader.read()) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static org.apache.hadoop.fs.Path hadoopPath(Path file) {
+        return new org.apache.hadoop.fs.Path(file.toUri());
+    }
+
+    private static long epochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,68 @@
+package devdarvegga.runnerz.run;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the streaming RunJsonDataLoader, writing into an InMemoryRunRepository.
+ */
+class RunJsonDataLoaderTest {
+
+    ObjectMapper objectMapper;
+    InMemoryRunRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        repository = new InMemoryRunRepository();
+    }
+
+    /**
+     * Verifies that every run in a Runs document is saved across several chunks and writers.
+     */
+    @Test
+    void shouldLoadAllRunsInChunks() throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(new Runs(runs(2_500)));
+
+        BatchResult result = new RunJsonDataLoader(objectMapper, repository, 100, 3)
+                .load(new ByteArrayInputStream(json));
+
+        assertEquals(2_500, result.saved());
+        assertEquals(2_500, repository.count());
+    }
+
+    /**
+     * Verifies that a bare array is accepted and failures are reported by position in the input.
+     */
+    @Test
+    void shouldReportFailuresByInputPosition() throws Exception {
+        List<Run> runs = new ArrayList<>(runs(250));
+        runs.set(180, runs.get(7));
+        byte[] json = objectMapper.writeValueAsBytes(runs);
+
+        BatchResult result = new RunJsonDataLoader(objectMapper, repository, 50, 2)
+                .load(new ByteArrayInputStream(json));
+
+        assertEquals(249, result.saved());
+        assertEquals(1, result.failures().size());
+        assertEquals(180, result.failures().get(0).fromIndex());
+        assertEquals(3, result.failures().get(0).chunk());
+    }
+
+    private static List<Run> runs(int count) {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 6, 0);
+        return IntStream.range(0, count)
+                .mapToObj(id -> new Run(id, "Run " + id, start.plusHours(id), start.plusHours(id).plusMinutes(40), 4, Location.OUTDOOR))
+                .toList();
+    }
+}
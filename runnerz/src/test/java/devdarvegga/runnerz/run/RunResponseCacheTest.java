@@ -0,0 +1,164 @@
+package devdarvegga.runnerz.run;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.web.client.RestClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for RunResponseCache behind RunController, with the cache enabled
+ * and a compression threshold low enough for the seeded runs to be stored gzipped.
+ */
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "runnerz.response-cache.enabled=true",
+        "server.compression.min-response-size=512B"
+})
+class RunResponseCacheTest {
+
+    @LocalServerPort
+    int randomServerPort;
+
+    @Autowired
+    RunResponseCache responseCache;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    RestClient restClient;
+
+    /**
+     * Starts every test with an empty cache, since @Sql reseeds the table behind it.
+     */
+    @BeforeEach
+    void setUp() {
+        restClient = RestClient.create("http://localhost:" + randomServerPort);
+        responseCache.invalidateAll();
+    }
+
+    /**
+     * Verifies that a repeated request is answered without querying the repository, and 304 for its ETag.
+     */
+    @Test
+    void shouldServeRepeatedRequestsFromCache() {
+        ResponseEntity<List<Run>> first = restClient.get().uri("/api/runs").retrieve().toEntity(new ParameterizedTypeReference<>() {});
+        double queries = findAllQueries();
+
+        ResponseEntity<List<Run>> second = restClient.get().uri("/api/runs").retrieve().toEntity(new ParameterizedTypeReference<>() {});
+        int notModified = restClient.get()
+                .uri("/api/runs")
+                .header("If-None-Match", first.getHeaders().getETag())
+                .exchange((request, response) -> response.getStatusCode().value());
+
+        assertEquals(10, second.getBody().size());
+        assertEquals(first.getBody(), second.getBody());
+        assertEquals(first.getHeaders().getETag(), second.getHeaders().getETag());
+        assertEquals(304, notModified);
+        assertEquals(queries, findAllQueries());
+    }
+
+    /**
+     * Verifies that clients accepting gzip get the stored gzipped body, and others the same body uncompressed,
+     * under different ETags; and that the gzip ETag is answered with 304 even before the body is cached again.
+     */
+    @Test
+    void shouldServeGzippedBodyWhenAccepted() throws IOException {
+        ResponseEntity<byte[]> identity = restClient.get().uri("/api/runs/search?location=INDOOR").retrieve().toEntity(byte[].class);
+        byte[] plain = identity.getBody();
+
+        ResponseEntity<byte[]> gzipped = restClient.get()
+                .uri("/api/runs/search?location=INDOOR")
+                .header("Accept-Encoding", "gzip, deflate")
+                .retrieve()
+                .toEntity(byte[].class);
+
+        assertEquals("gzip", gzipped.getHeaders().getFirst("Content-Encoding"));
+        assertEquals(MediaType.APPLICATION_JSON, gzipped.getHeaders().getContentType());
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody()))) {
+            assertArrayEquals(plain, in.readAllBytes());
+        }
+        assertNotEquals(identity.getHeaders().getETag(), gzipped.getHeaders().getETag());
+
+        responseCache.invalidateAll();
+        int notModified = restClient.get()
+                .uri("/api/runs/search?location=INDOOR")
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", gzipped.getHeaders().getETag())
+                .exchange((request, response) -> response.getStatusCode().value());
+        assertEquals(304, notModified);
+    }
+
+    /**
+     * Verifies that a write through the API is visible on the next request, with a new ETag.
+     */
+    @Test
+    void shouldInvalidateOnWrite() {
+        ResponseEntity<List<Run>> before = restClient.get().uri("/api/runs").retrieve().toEntity(new ParameterizedTypeReference<>() {});
+        Run run = before.getBody().get(0);
+
+        restClient.put()
+                .uri("/api/runs/" + run.id())
+                .body(new Run(run.id(), "Renamed", run.startedOn(), run.completedOn(), run.miles(), run.location()))
+                .retrieve()
+                .toBodilessEntity();
+        ResponseEntity<List<Run>> after = restClient.get().uri("/api/runs").retrieve().toEntity(new ParameterizedTypeReference<>() {});
+
+        assertEquals("Renamed", after.getBody().get(0).title());
+        assertNotEquals(before.getHeaders().getETag(), after.getHeaders().getETag());
+    }
+
+    /**
+     * Verifies that bodies are cached per negotiated format.
+     */
+    @Test
+    void shouldCacheEachFormatSeparately() {
+        List<Run> json = restClient.get().uri("/api/runs").retrieve().body(new ParameterizedTypeReference<>() {});
+
+        ResponseEntity<List<Run>> smile = restClient.get()
+                .uri("/api/runs")
+                .accept(new MediaType("application", "x-jackson-smile"))
+                .retrieve()
+                .toEntity(new ParameterizedTypeReference<>() {});
+
+        assertEquals(new MediaType("application", "x-jackson-smile"), smile.getHeaders().getContentType());
+        assertEquals(json, smile.getBody());
+        int notAcceptable = restClient.get()
+                .uri("/api/runs")
+                .accept(MediaType.APPLICATION_XML)
+                .exchange((request, response) -> response.getStatusCode().value());
+        assertEquals(406, notAcceptable);
+    }
+
+    /**
+     * Verifies Accept-Encoding parsing, including explicit refusals.
+     */
+    @Test
+    void shouldParseAcceptEncoding() {
+        assertTrue(RunResponseCache.acceptsGzip("gzip"));
+        assertTrue(RunResponseCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(RunResponseCache.acceptsGzip("*"));
+        assertFalse(RunResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(RunResponseCache.acceptsGzip("deflate, br"));
+        assertFalse(RunResponseCache.acceptsGzip(null));
+    }
+
+    private double findAllQueries() {
+        return meterRegistry.get("runnerz.repository").tag("method", "findAll").timers().stream()
+                .mapToDouble(timer -> timer.count())
+                .sum();
+    }
+}
@@ -0,0 +1,103 @@
+package devdarvegga.runnerz.run;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static devdarvegga.runnerz.run.TestRuns.run;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for RunTitleIndex ranking, paging and updates.
+ */
+class RunTitleIndexTest {
+
+    RunTitleIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new RunTitleIndex();
+        index.put(run(1, "Monday Morning Run"));
+        index.put(run(2, "Wednesday Evening Run"));
+        index.put(run(3, "Morning hill repeats"));
+        index.put(run(4, "Long run, long morning: the Sunday long run"));
+    }
+
+    /**
+     * Verifies that runs matching more query words rank first and matching is case-insensitive.
+     */
+    @Test
+    void shouldRankRunsMatchingMoreWordsFirst() {
+        RunTitleIndex.Page page = index.search("MORNING run", 0, 10);
+
+        assertEquals(4, page.total());
+        assertEquals(1, page.hits().get(0).id());
+        assertEquals(List.of(2, 3), page.hits().stream().skip(2).map(RunTitleIndex.Hit::id).sorted().toList());
+    }
+
+    /**
+     * Verifies that offset and limit page through the ranked hits while total counts all matches.
+     */
+    @Test
+    void shouldPageThroughHits() {
+        List<Integer> all = index.search("run morning", 0, 10).hits().stream().map(RunTitleIndex.Hit::id).toList();
+
+        RunTitleIndex.Page second = index.search("run morning", 2, 2);
+
+        assertEquals(4, second.total());
+        assertEquals(all.subList(2, 4), second.hits().stream().map(RunTitleIndex.Hit::id).toList());
+        assertEquals(List.of(), index.search("run", 10, 5).hits());
+        assertEquals(List.of(), index.search("run", Integer.MAX_VALUE, 5).hits());
+    }
+
+    /**
+     * Verifies that re-indexing a run replaces its old words and removing it drops it from results.
+     */
+    @Test
+    void shouldReflectUpdatesAndRemovals() {
+        index.put(run(3, "Track intervals"));
+        index.remove(2);
+
+        assertEquals(List.of(3), index.search("intervals", 0, 10).hits().stream().map(RunTitleIndex.Hit::id).toList());
+        assertEquals(0, index.search("hill evening", 0, 10).total());
+        assertEquals(3, index.size());
+    }
+
+    /**
+     * Verifies that results survive compaction after many runs are re-indexed and removed.
+     */
+    @Test
+    void shouldKeepResultsAcrossCompaction() {
+        for (int id = 100; id < 3100; id++) {
+            index.put(run(id, "Tempo " + id));
+        }
+        for (int id = 100; id < 3100; id++) {
+            if (id % 3 == 0) {
+                index.put(run(id, "Recovery jog " + id));
+            } else {
+                index.remove(id);
+            }
+        }
+
+        assertEquals(1004, index.size());
+        assertEquals(0, index.search("tempo", 0, 10).total());
+        assertEquals(1000, index.search("recovery", 0, 10).total());
+        assertEquals(List.of(201), index.search("jog 201", 0, 1).hits().stream().map(RunTitleIndex.Hit::id).toList());
+        assertEquals(List.of(1, 3, 4), index.search("morning", 0, 10).hits().stream().map(RunTitleIndex.Hit::id).sorted().toList());
+    }
+
+    /**
+     * Verifies that rebuilding replaces the contents with the repository's runs.
+     */
+    @Test
+    void shouldRebuildFromRepository() {
+        InMemoryRunRepository repository = new InMemoryRunRepository();
+        repository.create(run(7, "Tempo run"));
+
+        index.rebuild(repository);
+
+        assertEquals(1, index.size());
+        assertEquals(7, index.search("tempo", 0, 10).hits().get(0).id());
+    }
+}
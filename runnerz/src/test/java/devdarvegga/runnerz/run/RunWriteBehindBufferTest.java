@@ -0,0 +1,149 @@
+package devdarvegga.runnerz.run;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static devdarvegga.runnerz.run.TestRuns.run;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for RunWriteBehindBuffer writing into an InMemoryRunRepository.
+ */
+class RunWriteBehindBufferTest {
+
+    InMemoryRunRepository repository;
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryRunRepository();
+        registry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Verifies that a partial batch is written once the flush interval passes.
+     */
+    @Test
+    void shouldFlushAfterInterval() throws InterruptedException {
+        RunWriteBehindBuffer buffer = buffer(100, 50, Duration.ofMillis(50));
+        buffer.start();
+        try {
+            assertTrue(buffer.offer(run(1)));
+            assertTrue(buffer.offer(run(2)));
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (repository.count() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, repository.count());
+        } finally {
+            buffer.stop();
+        }
+        assertEquals(1, registry.get("runnerz.write_behind.flush").timer().count());
+    }
+
+    /**
+     * Verifies that runs still queued at shutdown are written before stop() returns.
+     */
+    @Test
+    void shouldFlushRemainingRunsOnStop() {
+        RunWriteBehindBuffer buffer = buffer(1000, 100, Duration.ofSeconds(10));
+        buffer.start();
+        for (int i = 1; i <= 250; i++) {
+            assertTrue(buffer.offer(run(i)));
+        }
+
+        buffer.stop();
+
+        assertEquals(250, repository.count());
+        assertEquals(0, buffer.depth());
+        assertEquals(0, registry.get("runnerz.write_behind.queue.depth").gauge().value());
+    }
+
+    /**
+     * Verifies that stop() wakes the flusher instead of leaving it waiting out its flush interval,
+     * both before and after the first run of a batch arrives.
+     */
+    @Test
+    void shouldStopWithoutWaitingForFlushInterval() {
+        RunWriteBehindBuffer idle = buffer(100, 10, Duration.ofSeconds(30));
+        idle.start();
+        assertTimeout(Duration.ofSeconds(5), () -> idle.stop());
+
+        RunWriteBehindBuffer filling = buffer(100, 10, Duration.ofSeconds(30));
+        filling.start();
+        assertTrue(filling.offer(run(1)));
+        assertTimeout(Duration.ofSeconds(5), () -> filling.stop());
+
+        assertEquals(1, repository.count());
+    }
+
+    /**
+     * Verifies that a full buffer rejects runs instead of blocking, and counts the rejection.
+     */
+    @Test
+    void shouldRejectWhenFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        repository = new InMemoryRunRepository() {
+            @Override
+            public BatchResult saveAll(List<Run> runs) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.saveAll(runs);
+            }
+        };
+        RunWriteBehindBuffer buffer = buffer(2, 1, Duration.ofSeconds(10));
+        buffer.start();
+
+        // The flusher holds at most one run while blocked in saveAll, the queue holds two more
+        int accepted = 0;
+        while (buffer.offer(run(accepted + 1))) {
+            accepted++;
+        }
+        assertTrue(accepted >= 2 && accepted <= 3, "accepted " + accepted);
+        assertEquals(1, registry.get("runnerz.write_behind.rejected").counter().count());
+
+        release.countDown();
+        buffer.stop();
+        assertEquals(accepted, repository.count());
+        assertFalse(buffer.offer(run(10)));
+    }
+
+    /**
+     * Verifies that runs the repository rejects are counted as failed without stopping the buffer.
+     */
+    @Test
+    void shouldCountFailedRuns() {
+        repository.create(run(1));
+        RunWriteBehindBuffer buffer = buffer(100, 10, Duration.ofSeconds(10));
+        buffer.start();
+        buffer.offer(run(1));
+        buffer.offer(run(2));
+
+        buffer.stop();
+
+        assertEquals(2, repository.count());
+        assertEquals(1, registry.get("runnerz.write_behind.failed").counter().count());
+    }
+
+    private RunWriteBehindBuffer buffer(int capacity, int batchSize, Duration flushInterval) {
+        var registries = new StaticListableBeanFactory();
+        registries.addBean("meterRegistry", registry);
+        return new RunWriteBehindBuffer(repository, registries.getBeanProvider(MeterRegistry.class),
+                capacity, batchSize, flushInterval);
+    }
+}
@@ -0,0 +1,43 @@
+package devdarvegga.runnerz.run;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Runs for tests that only need valid runs with given IDs, titles or start times.
+ * Unless given, a run is titled "Run {id}" and starts on 2024-03-01 at 06:00; every run is
+ * a 45-minute, 5-mile outdoor run.
+ */
+final class TestRuns {
+
+    static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 6, 0);
+
+    private TestRuns() {
+    }
+
+    static Run run(int id) {
+        return run(id, "Run " + id, START);
+    }
+
+    static Run run(int id, String title) {
+        return run(id, title, START);
+    }
+
+    static Run run(int id, LocalDateTime startedOn) {
+        return run(id, "Run " + id, startedOn);
+    }
+
+    static Run run(int id, String title, LocalDateTime startedOn) {
+        return new Run(id, title, startedOn, startedOn.plusMinutes(45), 5, Location.OUTDOOR);
+    }
+
+    /**
+     * Returns count runs with consecutive IDs from firstId, all starting at START.
+     */
+    static List<Run> runs(int firstId, int count) {
+        return IntStream.range(firstId, firstId + count)
+                .mapToObj(TestRuns::run)
+                .toList();
+    }
+}
@@ -0,0 +1,158 @@
+package devdarvegga.runnerz.user;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for UserRestClient against a local stand-in for the user API,
+ * served by the JDK's built-in HTTP server on a random port.
+ */
+class UserRestClientTest {
+
+    private static final String USER_1 = """
+            {"id": 1, "name": "Leanne Graham", "username": "Bret", "email": "Sincere@april.biz"}""";
+    private static final String USER_2 = """
+            {"id": 2, "name": "Ervin Howell", "username": "Antonette", "email": "Shanna@melissa.tv"}""";
+
+    HttpServer server;
+    ExecutorService executor;
+    AtomicInteger requests;
+    CountDownLatch release;
+
+    /**
+     * Starts the stand-in API. Responses wait on the release latch so tests can hold requests in flight.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        requests = new AtomicInteger();
+        release = new CountDownLatch(0);
+        executor = Executors.newCachedThreadPool();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/users", exchange -> {
+            requests.incrementAndGet();
+            awaitRelease();
+            String path = exchange.getRequestURI().getPath();
+            switch (path) {
+                case "/users" -> respond(exchange, 200, "[" + USER_1 + "," + USER_2 + "]");
+                case "/users/1" -> respond(exchange, 200, USER_1);
+                case "/users/2" -> respond(exchange, 200, USER_2);
+                default -> respond(exchange, 404, "{}");
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Verifies that repeated lookups of the same user are served from the cache.
+     */
+    @Test
+    void shouldCacheUserById() {
+        UserRestClient client = client(Duration.ofSeconds(5));
+
+        assertEquals("Bret", client.findById(1).username());
+        assertEquals("Bret", client.findById(1).username());
+
+        assertEquals(1, requests.get());
+    }
+
+    /**
+     * Verifies that concurrent lookups of the same user share one remote call.
+     */
+    @Test
+    void shouldCoalesceConcurrentRequestsForSameUser() throws Exception {
+        UserRestClient client = client(Duration.ofSeconds(5));
+        release = new CountDownLatch(1);
+
+        List<Future<User>> lookups = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            lookups.add(executor.submit(() -> client.findById(2)));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<User> lookup : lookups) {
+            assertEquals("Antonette", lookup.get(5, TimeUnit.SECONDS).username());
+        }
+        assertEquals(1, requests.get());
+    }
+
+    /**
+     * Verifies that prefetching all users also fills the per-user cache.
+     */
+    @Test
+    void shouldPrefetchAllUsers() throws Exception {
+        UserRestClient client = client(Duration.ofSeconds(5));
+
+        assertEquals(2, client.prefetch().get(5, TimeUnit.SECONDS).size());
+        assertEquals("Antonette", client.findById(2).username());
+        assertEquals(2, client.findAll().size());
+
+        assertEquals(1, requests.get());
+    }
+
+    /**
+     * Verifies that a slow API fails with a timeout instead of blocking the caller indefinitely.
+     */
+    @Test
+    void shouldTimeOutSlowResponses() {
+        UserRestClient client = client(Duration.ofMillis(200));
+        release = new CountDownLatch(1);
+
+        try {
+            assertThrows(ResourceAccessException.class, () -> client.findById(1));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private UserRestClient client(Duration readTimeout) {
+        var properties = new UserClientProperties("http://localhost:" + server.getAddress().getPort() + "/",
+                Duration.ofSeconds(1), readTimeout, Duration.ofMinutes(10), 100);
+        return new UserRestClient(RestClient.builder(), properties, executor);
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}